@@ -0,0 +1,19 @@
+package io.github.asewhy.project.dto.optional.benchmarks;
+
+public class Child {
+    private final Long id;
+    private final String name;
+
+    public Child(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
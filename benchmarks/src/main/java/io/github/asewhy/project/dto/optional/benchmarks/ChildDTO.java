@@ -0,0 +1,9 @@
+package io.github.asewhy.project.dto.optional.benchmarks;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.ResponseDTO;
+
+@ResponseDTO(value = Child.class, serializer = false)
+public class ChildDTO {
+    protected Long id;
+    protected String name;
+}
@@ -0,0 +1,69 @@
+package io.github.asewhy.project.dto.optional.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Сравнивает конвертацию коллекций в конструкторах DTO ответа: stream().map().collect(), который генерировался раньше,
+ * и конструкторы ParentListResponseDTO/ParentSetResponseDTO, которые создает процессор при сборке этого модуля.
+ *
+ * Запуск: mvn install && mvn -f benchmarks/pom.xml package && java -jar benchmarks/target/benchmarks.jar CollectionMapping -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectionMappingBenchmark {
+    @Param({ "10", "1000", "10000" })
+    public int size;
+
+    private Parent parent;
+
+    @Setup
+    public void setup() {
+        var list = new ArrayList<Child>(size);
+        var set = new LinkedHashSet<Child>();
+
+        for(var i = 0; i < size; i++) {
+            var current = new Child((long) i, "child-" + i);
+
+            list.add(current);
+            set.add(current);
+        }
+
+        parent = new Parent(list, set);
+    }
+
+    @Benchmark
+    public ParentListResponseDTO listStreamCollect() {
+        var result = new ParentListResponseDTO();
+
+        result.setChildren(parent.getChildren().stream().map(ChildResponseDTO::new).collect(Collectors.toList()));
+
+        return result;
+    }
+
+    @Benchmark
+    public ParentListResponseDTO listGenerated() {
+        return new ParentListResponseDTO(parent);
+    }
+
+    @Benchmark
+    public ParentSetResponseDTO setStreamCollect() {
+        var result = new ParentSetResponseDTO();
+
+        result.setMembers(parent.getMembers().stream().map(ChildResponseDTO::new).collect(Collectors.toSet()));
+
+        return result;
+    }
+
+    @Benchmark
+    public ParentSetResponseDTO setGenerated() {
+        return new ParentSetResponseDTO(parent);
+    }
+}
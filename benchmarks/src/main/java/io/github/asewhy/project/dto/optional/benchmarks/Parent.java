@@ -0,0 +1,22 @@
+package io.github.asewhy.project.dto.optional.benchmarks;
+
+import java.util.List;
+import java.util.Set;
+
+public class Parent {
+    private final List<Child> children;
+    private final Set<Child> members;
+
+    public Parent(List<Child> children, Set<Child> members) {
+        this.children = children;
+        this.members = members;
+    }
+
+    public List<Child> getChildren() {
+        return children;
+    }
+
+    public Set<Child> getMembers() {
+        return members;
+    }
+}
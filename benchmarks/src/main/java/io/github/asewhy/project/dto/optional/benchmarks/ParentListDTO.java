@@ -0,0 +1,10 @@
+package io.github.asewhy.project.dto.optional.benchmarks;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.ResponseDTO;
+
+import java.util.List;
+
+@ResponseDTO(value = Parent.class, serializer = false)
+public class ParentListDTO {
+    protected List<ChildDTO> children;
+}
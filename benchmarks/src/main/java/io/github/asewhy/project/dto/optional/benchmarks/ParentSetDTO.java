@@ -0,0 +1,10 @@
+package io.github.asewhy.project.dto.optional.benchmarks;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.ResponseDTO;
+
+import java.util.Set;
+
+@ResponseDTO(value = Parent.class, serializer = false)
+public class ParentSetDTO {
+    protected Set<ChildDTO> members;
+}
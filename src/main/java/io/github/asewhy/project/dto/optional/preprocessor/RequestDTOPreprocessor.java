@@ -1,10 +1,14 @@
 package io.github.asewhy.project.dto.optional.preprocessor;
 
 import io.github.asewhy.project.dto.optional.preprocessor.annotations.RequestDTO;
+import io.github.asewhy.project.dto.optional.preprocessor.enums.PresencePolicy;
 import io.github.asewhy.project.dto.optional.preprocessor.members.*;
-import io.github.asewhy.project.dto.optional.preprocessor.processors.DateFormatPreprocessor;
 import io.github.asewhy.project.dto.optional.preprocessor.processors.base.BasePreprocessor;
+import io.github.asewhy.project.dto.optional.preprocessor.processors.base.PreprocessorRegistry;
 import io.github.asewhy.project.dto.optional.preprocessor.utils.APUtils;
+import io.github.asewhy.project.dto.optional.preprocessor.utils.Capabilities;
+import io.github.asewhy.project.dto.optional.preprocessor.utils.ProcessingStats;
+import io.github.asewhy.project.dto.optional.preprocessor.utils.SourceQueue;
 
 import javax.annotation.processing.*;
 import javax.lang.model.SourceVersion;
@@ -16,37 +20,50 @@ import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
-import java.io.IOException;
 import java.io.PrintWriter;
-import java.lang.reflect.InvocationTargetException;
+import java.io.StringWriter;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @SupportedSourceVersion(SourceVersion.RELEASE_6)
 @SupportedAnnotationTypes({ "io.github.asewhy.project.dto.optional.preprocessor.annotations.RequestDTO" })
+@SupportedOptions({ ProcessingStats.OPTION })
 public class RequestDTOPreprocessor extends AbstractProcessor {
+    private static final Set<String> ISO_TIME_TYPES = Set.of(
+        "java.time.LocalDate", "java.time.LocalTime", "java.time.LocalDateTime", "java.time.OffsetDateTime",
+        "java.time.ZonedDateTime", "java.time.Instant"
+    );
+
     protected Types typeUtils;
     protected Elements elementUtils;
     protected Filer filter;
-    protected List<Class<? extends BasePreprocessor<?>>> processors;
+    protected PreprocessorRegistry processors;
+    protected Capabilities capabilities;
+    protected ProcessingStats stats;
+    protected SourceQueue sources;
 
     @Override
     public synchronized void init(ProcessingEnvironment processingEnv) {
         super.init(processingEnv);
 
-        var env = APUtils.unwrap(processingEnv);
-
-        assert env != null;
-
-        this.typeUtils = env.getTypeUtils();
-        this.elementUtils = env.getElementUtils();
-        this.filter = env.getFiler();
-        this.processors = new ArrayList<>();
-        this.processors.add(DateFormatPreprocessor.class);
+        this.typeUtils = processingEnv.getTypeUtils();
+        this.elementUtils = processingEnv.getElementUtils();
+        this.filter = processingEnv.getFiler();
+        this.stats = new ProcessingStats(processingEnv, "request");
+        this.sources = new SourceQueue();
     }
 
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        this.capabilities = Capabilities.of(processingEnv, roundEnv);
+
+        try {
+            this.processors = new PreprocessorRegistry(RequestDTOPreprocessor.class.getClassLoader());
+        } catch (ServiceConfigurationError x) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot load field preprocessors. " + x.getMessage());
+            return true;
+        }
+
         for (var clazz : roundEnv.getElementsAnnotatedWith(RequestDTO.class)) {
             if(clazz.getKind() != ElementKind.CLASS) {
                 processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "The @RequestDTO annotation is only allowed as class annotation");
@@ -54,22 +71,34 @@ public class RequestDTOPreprocessor extends AbstractProcessor {
             }
 
             var annotation = clazz.getAnnotation(RequestDTO.class);
+            var deserializer_enabled = capabilities.jackson_deserializer && annotation.deserializer();
+            var started = stats.start();
 
             try {
-                makeDefaultRequestOf(clazz, annotation);
+                makeDefaultRequestOf(clazz, annotation, deserializer_enabled);
             } catch (Exception x) {
                 processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, x.toString());
             }
+
+            stats.total(clazz, started);
+        }
+
+        sources.flush(filter, processingEnv.getMessager(), stats);
+
+        if(roundEnv.processingOver()) {
+            stats.report(filter, processingEnv.getMessager());
+            APUtils.clearCaches();
         }
 
         return true;
     }
 
-    public void makeDefaultRequestOf(Element clazz, RequestDTO annotation) throws Exception {
+    public void makeDefaultRequestOf(Element clazz, RequestDTO annotation, Boolean deserializer_enabled) throws Exception {
         var bag = new DefaultDatasetClassBag();
         var settings = new SettingsBag();
         var classElement = ((TypeElement) ((DeclaredType) clazz.asType()).asElement());
         var superClazz = classElement.getSuperclass();
+        var started = stats.start();
 
         bag.fields = new ArrayList<>();
         bag.new_name = getNewClassName(clazz.getSimpleName().toString());
@@ -79,6 +108,7 @@ public class RequestDTOPreprocessor extends AbstractProcessor {
         bag.pkg = elementUtils.getPackageOf(clazz);
 
         settings.policy = annotation.policy();
+        settings.presence = annotation.presence();
 
         for(var current: ElementFilter.fieldsIn(clazz.getEnclosedElements())) {
             var type = getGenerics(current.asType());
@@ -92,10 +122,15 @@ public class RequestDTOPreprocessor extends AbstractProcessor {
                 result.str_name = current.getSimpleName().toString();
                 result.str_access = current.getModifiers().stream().map(e -> e.toString().toLowerCase(Locale.ROOT)).collect(Collectors.joining(" "));
                 result.annotations = type.getAnnotations();
+                result.ordinal = bag.fields.size();
                 result.base = current;
 
                 bag.fields.add(result);
                 bag.imports.addAll(type.getImports());
+
+                if(APUtils.getPlainEnum(typeUtils.asElement(current.asType())) != null) {
+                    bag.imports.add("com.fasterxml.jackson.annotation.JsonIgnore");
+                }
             }
 
             bag.imports.addAll(getFieldConversionImports(current));
@@ -116,132 +151,657 @@ public class RequestDTOPreprocessor extends AbstractProcessor {
         bag.imports.add("io.github.asewhy.project.dto.optional.preprocessor.runtime.PublicBag");
         bag.imports.add("com.fasterxml.jackson.annotation.JsonProperty");
 
-        makeDefaultRequestClass(bag, settings);
+        stats.record(clazz, "extract", started);
+
+        if(deserializer_enabled) {
+            bag.imports.add("com.fasterxml.jackson.databind.annotation.JsonDeserialize");
+
+            makeDefaultDeserializerFrom(bag, settings);
+        }
+
+        makeDefaultBag(bag);
+
+        makeDefaultRequestClass(bag, settings, deserializer_enabled);
+    }
+
+    private void makeDefaultDeserializerFrom(DefaultDatasetClassBag request_bag, SettingsBag settings) {
+        var bag = new DefaultDatasetClassBag();
+
+        bag.new_name = getNewDeserializerName(request_bag.clazz.getSimpleName().toString());
+        bag.base_class = request_bag.base_class;
+        bag.fields = request_bag.fields;
+        bag.clazz = request_bag.clazz;
+        bag.pkg = request_bag.pkg;
+
+        for(var field: bag.fields) {
+            var type = getGenerics(field.base.asType());
+
+            if(type != null) {
+                bag.imports.addAll(type.getImports());
+
+                if(type.generics.size() > 0) {
+                    bag.imports.add("com.fasterxml.jackson.core.type.TypeReference");
+                    bag.imports.add("com.fasterxml.jackson.databind.JavaType");
+                    bag.imports.add("com.fasterxml.jackson.databind.type.TypeFactory");
+                }
+            }
+
+            bag.imports.addAll(getFieldConversionImports(field.base));
+        }
+
+        bag.imports.add("com.fasterxml.jackson.databind.deser.std.StdDeserializer");
+        bag.imports.add("com.fasterxml.jackson.databind.DeserializationContext");
+        bag.imports.add("com.fasterxml.jackson.databind.JsonMappingException");
+        bag.imports.add("com.fasterxml.jackson.core.JsonParser");
+        bag.imports.add("com.fasterxml.jackson.core.JsonToken");
+        bag.imports.add("java.io.IOException");
+
+        makeDefaultDeserializer(bag, settings);
     }
 
-    private void makeDefaultRequestClass(DefaultDatasetClassBag bag, SettingsBag settings) throws IOException {
-        var file = filter.createSourceFile(bag.pkg.getQualifiedName() + "." + bag.new_name);
+    private void makeDefaultDeserializer(DefaultDatasetClassBag bag, SettingsBag settings) {
+        var model = ClassSnapshot.of(bag);
+        var from_name = getNewClassName(model.simple_name);
+        var cases = new StringWriter();
+        var cases_writer = new PrintWriter(cases);
+
+        //
+        // Типы с дженериками разбираются один раз при загрузке десериализатора
+        //
+        var type_constants = bag.fields.stream()
+            .filter(e -> e.base.asType() instanceof DeclaredType && ((DeclaredType) e.base.asType()).getTypeArguments().size() > 0)
+            .map(e -> "\tprivate static final JavaType " + getFieldTypeConstant(e.str_name) + " = TypeFactory.defaultInstance().constructType(new TypeReference<" + e.str_type + ">() {});")
+        .collect(Collectors.toUnmodifiableList());
+
+        //
+        // Чтение поля зависит от модели компилятора и препроцессоров полей, поэтому собирается здесь, а не в генераторе
+        //
+        for(var field: bag.fields) {
+            if(!field.base.getModifiers().contains(Modifier.FINAL)) {
+                cases_writer.println("\t\t\t\tcase \"" + APUtils.convertToCurrentCase(field.str_name, settings.policy) + "\":");
+                writeRead(field.base, field, from_name, cases_writer);
+                cases_writer.println("\t\t\t\t\tbreak;");
+            }
+        }
+
+        cases_writer.flush();
 
-        try (var w = file.openWriter()) {
-            var pack = bag.pkg.getQualifiedName().toString();
-            var pw = new PrintWriter(w);
+        var read_cases = cases.toString();
 
-            pw.println("package " + pack + ";");
+        sources.add(bag.clazz, model.getQualifiedName(), pw -> {
+            pw.println("package " + model.pkg + ";");
             pw.print("\n");
 
-            for(var field: bag.imports.stream().filter(e -> !e.startsWith("java.lang.") && e.contains(".")).distinct().collect(Collectors.toList())) {
+            for(var field: model.imports) {
                 pw.println("import " + field + ";");
             }
 
             pw.println("\n/**");
             pw.println(" * Сгенерировано автоматически с помощью dto-optional-annotation-preprocessor");
-            pw.println(" * Этот класс нельзя использовать как ответ сервера, из-за того что Optional не дружит с маппером, т.к. не реализует serializable");
-            pw.println(" * Для ответа сервера следует отметить целевой класс аннотацией @ResponseDTO и использовать TargetClassName + ResponseDTO");
-            pw.println(" * Это реализация Data Transfer Object для запроса. Реализованно от класса @see {@link " + bag.clazz.getSimpleName() + "}");
+            pw.println(" * Этот класс используется для десериализации объекта @see {@link " + from_name + "}.");
+            pw.println(" * Реализованно от класса @see {@link " + model.simple_name + "}");
             pw.println(" */");
 
-            pw.print("public class " + bag.new_name);
+            pw.println("class " + model.new_name + " extends StdDeserializer<" + from_name +"> {");
 
-            if(bag.clazz instanceof TypeElement) {
-                var tClazz = (TypeElement) bag.clazz;
-                var modifiers = tClazz.getModifiers();
-                var constructors = ElementFilter.constructorsIn(tClazz.getEnclosedElements());
+            for(var constant: type_constants) {
+                pw.println(constant);
+            }
 
-                if(bag.clazz == null) {
-                    throw new Exception("No executable class . [" + bag.new_name + "]");
-                }
+            if(type_constants.size() > 0) {
+                pw.print("\n");
+            }
+
+            pw.println("\tpublic " + model.new_name + "() {");
+            pw.println("\t\tsuper(" + from_name + ".class);");
+            pw.println("\t}");
+            pw.print("\n");
+            pw.println("\tpublic " + model.new_name + "(Class<" + from_name + "> from) {");
+            pw.println("\t\tsuper(from);");
+            pw.println("\t}");
+
+            pw.print("\n");
+            pw.println("\t@Override");
+            pw.println("\tpublic " + from_name + " deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {");
+            pw.println("\t\tvar result = new " + from_name + "();");
+            pw.println("\t\tvar token = p.currentToken();");
+            pw.print("\n");
+            pw.println("\t\tif(token == JsonToken.START_OBJECT) {");
+            pw.println("\t\t\ttoken = p.nextToken();");
+            pw.println("\t\t} else if(token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {");
+            pw.println("\t\t\treturn (" + from_name + ") ctxt.handleUnexpectedToken(" + from_name + ".class, p);");
+            pw.println("\t\t}");
+            pw.print("\n");
+            pw.println("\t\tfor(; token == JsonToken.FIELD_NAME; token = p.nextToken()) {");
+            pw.println("\t\t\tvar name = p.currentName();");
+            pw.print("\n");
+            pw.println("\t\t\ttoken = p.nextToken();");
+            pw.print("\n");
+            pw.println("\t\t\tswitch (name) {");
+            pw.print(read_cases);
+            pw.println("\t\t\t\tdefault:");
+            pw.println("\t\t\t\t\tctxt.handleUnknownProperty(p, this, result, name);");
+            pw.println("\t\t\t}");
+            pw.println("\t\t}");
+            pw.print("\n");
+            pw.println("\t\treturn result;");
+            pw.println("\t}");
+
+            pw.println("}");
+        });
+    }
+
+    private void writeRead(
+        Element field_element,
+        FieldContainer field,
+        String from_name,
+        PrintWriter pw
+    ) {
+        var write_anyone = false;
+
+        for(var processor: processors.getFor(field_element)) {
+            if(processor.isTargetAnnotated(field_element)) {
+                var setter_type = processor.getSetterType() != null ? elementUtils.getTypeElement(processor.getSetterType()).asType() : field_element.asType();
 
-                if(bag.clazz.getSimpleName().toString().equals("Object")) {
-                    throw new Exception("Base class cannot be object. [" + bag.clazz.getSimpleName() + "]");
+                if(processor.processRead(pw, field_element, field, buildReadOf(setter_type, field, from_name), "result")) {
+                    write_anyone = true;
                 }
+            }
+        }
+
+        if(!write_anyone) {
+            var statement = "result." + APUtils.toSetter(field.str_name) + "(" + buildReadOf(field_element.asType(), field, from_name) + ");";
 
-                if(modifiers.contains(Modifier.FINAL)) {
-                    throw new Exception("DTO class cannot be final. [" + bag.clazz.getSimpleName() + "]");
+            var element = typeUtils.asElement(field_element.asType());
+
+            //
+            // Сгенерированный парсер перечисления и UUID.fromString бросают IllegalArgumentException на неверную строку
+            //
+            if(APUtils.getPlainEnum(element) != null || element instanceof TypeElement && ((TypeElement) element).getQualifiedName().contentEquals("java.util.UUID")) {
+                BasePreprocessor.writeGuarded(pw, statement, List.of("IllegalArgumentException"));
+            } else if(!capabilities.jackson_java_time && element instanceof TypeElement && ISO_TIME_TYPES.contains(((TypeElement) element).getQualifiedName().toString())) {
+                BasePreprocessor.writeGuarded(pw, statement, List.of("java.time.format.DateTimeParseException"));
+            } else {
+                BasePreprocessor.writeGuarded(pw, statement, null);
+            }
+        }
+    }
+
+    private String buildReadOf(TypeMirror type, FieldContainer field, String from_name) {
+        var element = typeUtils.asElement(type);
+        var fallback = type instanceof DeclaredType && ((DeclaredType) type).getTypeArguments().size() > 0 ?
+            "ctxt.readValue(p, " + getFieldTypeConstant(field.str_name) + ")" :
+            "ctxt.readValue(p, " + (element != null && element.getAnnotation(RequestDTO.class) == null ? element.getSimpleName() : field.str_type) + ".class)";
+        var read = (String) null;
+
+        if(element instanceof TypeElement) {
+            var plain_enum = APUtils.getPlainEnum(element);
+
+            if(plain_enum != null) {
+                read = "token == JsonToken.VALUE_STRING ? " + from_name + "." + getEnumParserName(plain_enum) + "(p.getText())";
+            } else {
+                switch (((TypeElement) element).getQualifiedName().toString()) {
+                    case "java.lang.String" -> read = "token == JsonToken.VALUE_STRING ? p.getText()";
+                    case "java.lang.Boolean" -> read = "token.isBoolean() ? Boolean.valueOf(p.getBooleanValue())";
+                    case "java.lang.Byte" -> read = "token == JsonToken.VALUE_NUMBER_INT ? Byte.valueOf(p.getByteValue())";
+                    case "java.lang.Short" -> read = "token == JsonToken.VALUE_NUMBER_INT ? Short.valueOf(p.getShortValue())";
+                    case "java.lang.Integer" -> read = "token == JsonToken.VALUE_NUMBER_INT ? Integer.valueOf(p.getIntValue())";
+                    case "java.lang.Long" -> read = "token == JsonToken.VALUE_NUMBER_INT ? Long.valueOf(p.getLongValue())";
+                    case "java.lang.Float" -> read = "token.isNumeric() ? Float.valueOf(p.getFloatValue())";
+                    case "java.lang.Double" -> read = "token.isNumeric() ? Double.valueOf(p.getDoubleValue())";
+                    case "java.math.BigDecimal" -> read = "token.isNumeric() ? p.getDecimalValue()";
+                    case "java.math.BigInteger" -> read = "token == JsonToken.VALUE_NUMBER_INT ? p.getBigIntegerValue()";
+                    case "java.util.UUID" -> read = "token == JsonToken.VALUE_STRING ? UUID.fromString(p.getText())";
                 }
 
-                if(modifiers.contains(Modifier.PRIVATE)) {
-                    throw new Exception("DTO class cannot be private. [" + bag.clazz.getSimpleName() + "]");
+                //
+                // Без jackson-datatype-jsr310 jackson не читает java.time, поэтому строки ISO 8601 разбираются сами.
+                // С модулем чтение остается за ним, чтобы учитывались его настройки формата
+                //
+                if(read == null && !capabilities.jackson_java_time && ISO_TIME_TYPES.contains(((TypeElement) element).getQualifiedName().toString())) {
+                    read = "token == JsonToken.VALUE_STRING ? " + ((TypeElement) element).getQualifiedName() + ".parse(p.getText())";
                 }
+            }
+        }
+
+        //
+        // Все, что не попало под быстрый путь, отдается jackson как есть
+        //
+        return "token == JsonToken.VALUE_NULL ? null : " + (read != null ? read + " : " + fallback : fallback);
+    }
+
+    private String getFieldTypeConstant(String field_name) {
+        return "TYPE_" + APUtils.toSnakeCase(field_name).toUpperCase(Locale.ROOT);
+    }
+
+    private void makeDefaultRequestClass(DefaultDatasetClassBag bag, SettingsBag settings, Boolean deserializer_enabled) throws Exception {
+        var extendable = bag.clazz instanceof TypeElement;
+
+        if(extendable) {
+            var tClazz = (TypeElement) bag.clazz;
+            var modifiers = tClazz.getModifiers();
+            var constructors = ElementFilter.constructorsIn(tClazz.getEnclosedElements());
+
+            if(bag.clazz.getSimpleName().toString().equals("Object")) {
+                throw new Exception("Base class cannot be object. [" + bag.clazz.getSimpleName() + "]");
+            }
+
+            if(modifiers.contains(Modifier.FINAL)) {
+                throw new Exception("DTO class cannot be final. [" + bag.clazz.getSimpleName() + "]");
+            }
+
+            if(modifiers.contains(Modifier.PRIVATE)) {
+                throw new Exception("DTO class cannot be private. [" + bag.clazz.getSimpleName() + "]");
+            }
+
+            if(constructors.stream().noneMatch(e -> e.getParameters().size() == 0)) {
+                throw new Exception("No default constrictor for base class. [" + bag.clazz.getSimpleName() + "]");
+            }
+        }
+
+        var model = ClassSnapshot.of(bag);
+        var bitmask = settings.presence == PresencePolicy.Bitmask;
+        var declarations = List.copyOf(getFieldDeclarations(bag.fields));
+        var setters = new ArrayList<String>();
+        var tail = new StringWriter();
+        var tail_writer = new PrintWriter(tail);
+
+        //
+        // Сеттеры, парсеры перечислений и applyTo зависят от модели компилятора и препроцессоров полей, поэтому
+        // собираются здесь, а генератор только вставляет готовый текст
+        //
+        for(var field: bag.fields) {
+            var setter = new StringWriter();
+
+            if(!field.base.getModifiers().contains(Modifier.FINAL)) {
+                var setter_writer = new PrintWriter(setter);
+
+                writeSetter(field.base, field, setter_writer, settings);
+                setter_writer.flush();
+            }
+
+            setters.add(setter.toString());
+        }
+
+        for(var plain_enum: bag.fields.stream().map(e -> APUtils.getPlainEnum(typeUtils.asElement(e.base.asType()))).filter(Objects::nonNull).distinct().collect(Collectors.toList())) {
+            writeEnumParser(plain_enum, tail_writer);
+        }
 
-                if(constructors.stream().noneMatch(e -> e.getParameters().size() == 0)) {
-                    throw new Exception("No default constrictor for base class. [" + bag.clazz.getSimpleName() + "]");
+        var enum_parsers = tail.toString();
+        var apply = new StringWriter();
+        var apply_writer = new PrintWriter(apply);
+
+        if(extendable) {
+            apply_writer.println("\n\tpublic <T extends " + model.simple_name + "> T applyTo(T target) {");
+
+            for(var field: bag.fields) {
+                var statement = getApplyStatement((TypeElement) bag.clazz, field);
+
+                if(statement != null) {
+                    apply_writer.println("\t\tif(this.has" + APUtils.camelCase(field.str_name) + "Field()) {");
+                    apply_writer.println("\t\t\t" + statement);
+                    apply_writer.println("\t\t}\n");
                 }
+            }
+
+            apply_writer.println("\t\treturn target;");
+            apply_writer.println("\t}");
+        }
+
+        tail_writer.flush();
+        apply_writer.flush();
+
+        var field_setters = List.copyOf(setters);
+        var apply_to = apply.toString();
+
+        sources.add(bag.clazz, model.getQualifiedName(), pw -> {
+            pw.println("package " + model.pkg + ";");
+            pw.print("\n");
+
+            for(var field: model.imports) {
+                pw.println("import " + field + ";");
+            }
+
+            pw.println("\n/**");
+            pw.println(" * Сгенерировано автоматически с помощью dto-optional-annotation-preprocessor");
+            pw.println(" * Этот класс нельзя использовать как ответ сервера, из-за того что Optional не дружит с маппером, т.к. не реализует serializable");
+            pw.println(" * Для ответа сервера следует отметить целевой класс аннотацией @ResponseDTO и использовать TargetClassName + ResponseDTO");
+            pw.println(" * Это реализация Data Transfer Object для запроса. Реализованно от класса @see {@link " + model.simple_name + "}");
+            pw.println(" */");
 
-                pw.print(" extends " + bag.clazz.getSimpleName());
+            if(deserializer_enabled) {
+                pw.println("@JsonDeserialize(using = " + getNewDeserializerName(model.simple_name) + ".class)");
+            }
+
+            pw.print("public class " + model.new_name);
+
+            if(extendable) {
+                pw.print(" extends " + model.simple_name);
             }
 
             pw.println(" {");
 
-            if(bag.fields.size() > 0) {
-                for (var field : bag.fields) {
-                    pw.println("\t" + field.str_access + " Optional<" + field.str_type_annotations + "> " + field.str_name + ";");
+            if(model.fields.size() > 0) {
+                for (var field : model.fields) {
+                    if(bitmask) {
+                        pw.println("\t" + field.str_access + " " + field.str_type_annotations + " " + field.str_name + ";");
+                    } else {
+                        pw.println("\t" + field.str_access + " Optional<" + field.str_type_annotations + "> " + field.str_name + ";");
+                    }
+                }
+
+                //
+                // Признаки наличия полей, по одному биту на поле
+                //
+                if(bitmask) {
+                    for(var i = 0; i < model.fields.size(); i += 64) {
+                        pw.println("\tprivate long " + APUtils.toPresenceField(i) + ";");
+                    }
                 }
 
                 pw.print("\n");
             }
 
-            pw.println("\tpublic " + bag.new_name + "() {");
+            if(declarations.size() > 0) {
+                for(var declaration: declarations) {
+                    pw.println("\t" + declaration);
+                }
 
-            if(bag.clazz instanceof TypeElement) {
-                pw.println("\t\tsuper();\n");
+                pw.print("\n");
             }
 
-            for(var field: bag.fields) {
-                var constant = field.base.getConstantValue();
+            pw.println("\tpublic " + model.new_name + "() {");
 
+            if(extendable) {
+                pw.println("\t\tsuper();\n");
+            }
+
+            for(var field: model.fields) {
                 pw.print("\t\tthis.");
                 pw.print(field.str_name);
                 pw.print(" = ");
-                pw.print((constant == null ? null : "Optional.ofNullable(" + (constant instanceof String ? "\"" + constant + "\"" : constant) + ")"));
-                pw.println(";");
+                if(bitmask) {
+                    pw.print(field.constant);
+                    pw.println(";");
+
+                    if(field.constant != null) {
+                        pw.println("\t\t" + APUtils.toPresenceMark(field.ordinal));
+                    }
+                } else {
+                    pw.print((field.constant == null ? null : "Optional.ofNullable(" + field.constant + ")"));
+                    pw.println(";");
+                }
             }
 
             pw.println("\t}");
 
-            for(var field: bag.fields) {
+            for(var field: model.fields) {
                 pw.print("\n");
-                pw.println("\tpublic Boolean has" + APUtils.camelCase(field.str_name) + "Field() {");
-                pw.println("\t\treturn this." + field.str_name + " != null ? true : false;");
+
+                if(bitmask) {
+                    pw.println("\tpublic boolean has" + APUtils.camelCase(field.str_name) + "Field() {");
+                    pw.println("\t\treturn " + APUtils.toPresenceCheck(field.ordinal) + ";");
+                } else {
+                    pw.println("\tpublic Boolean has" + APUtils.camelCase(field.str_name) + "Field() {");
+                    pw.println("\t\treturn this." + field.str_name + " != null ? true : false;");
+                }
+
                 pw.println("\t}");
                 pw.print("\n");
                 pw.println("\tpublic " + field.str_type_annotations + " get" + APUtils.camelCase(field.str_name) + "(" + field.str_type + " def) {");
-                pw.println("\t\treturn this." + field.str_name + " != null ? this." + field.str_name + ".orElse(def) : def;");
+
+                if(bitmask) {
+                    pw.println("\t\treturn " + APUtils.toPresenceCheck(field.ordinal) + " && this." + field.str_name + " != null ? this." + field.str_name + " : def;");
+                } else {
+                    pw.println("\t\treturn this." + field.str_name + " != null ? this." + field.str_name + ".orElse(def) : def;");
+                }
+
                 pw.println("\t}");
                 pw.print("\n");
                 pw.println("\tpublic " + field.str_type_annotations + " get" + APUtils.camelCase(field.str_name) + "() {");
                 pw.println("\t\treturn this." + APUtils.toGetter(field.str_name) + "(null);");
                 pw.println("\t}\n");
-
-                if(!field.base.getModifiers().contains(Modifier.FINAL)) {
-                    try {
-                        writeSetter(field.base, field, pw, settings);
-                    } catch (NoSuchMethodException | InvocationTargetException | InstantiationException | IllegalAccessException e) {
-                        e.printStackTrace();
-                    }
-                }
+                pw.print(field_setters.get(field.ordinal));
             }
 
+            pw.print(enum_parsers);
+
             pw.println("\n\tpublic PublicBag toBag() {");
-            pw.println("\t\tvar bag = new PublicBag();\n");
+            pw.println("\t\tvar bag = new " + getNewBagName(model.simple_name) + "();\n");
 
-            for(var field: bag.fields) {
-                pw.println("\t\tbag.set(\"" + field.str_name + "\", " + field.str_name + ");");
+            for(var field: model.fields) {
+                pw.println("\t\tif(this.has" + APUtils.camelCase(field.str_name) + "Field()) {");
+                pw.println("\t\t\tbag.put(" + field.ordinal + ", this." + APUtils.toGetter(field.str_name) + "());");
+                pw.println("\t\t}\n");
             }
 
-            pw.println("\n\t\treturn bag;");
+            pw.println("\t\treturn bag;");
             pw.println("\t}");
-
+            pw.print(apply_to);
             pw.println("}");
-            pw.flush();
-        } catch (Exception x) {
-            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, x.toString());
+        });
+    }
+
+    /**
+     * Возвращает вызов, который переносит значение поля в целевой объект, или null если поле перенести нельзя.
+     * Вложенные @RequestDTO переносятся рекурсивно в текущее значение поля цели, чтобы PATCH не затирал не пришедшие
+     * вложенные поля. Новый экземпляр исходного класса создается, только если у цели поле пустое или его нельзя прочитать.
+     */
+    private String getApplyStatement(TypeElement clazz, FieldContainer field) {
+        var field_type = typeUtils.asElement(field.base.asType());
+        var value = "this." + APUtils.toGetter(field.str_name) + "()";
+
+        if(field.base.getModifiers().contains(Modifier.FINAL) || field.base.getModifiers().contains(Modifier.STATIC)) {
+            return null;
+        }
+
+        if(field_type != null && field_type.getAnnotation(RequestDTO.class) != null) {
+            var local = "value$" + field.ordinal;
+            var created = "new " + typeUtils.erasure(field.base.asType()) + "()";
+            var current_value = getApplyCurrent(clazz, field);
+
+            if(current_value == null) {
+                var assign = getApplyAssign(clazz, field, local + " != null ? " + local + ".applyTo(" + created + ") : null");
+
+                return assign != null ? "var " + local + " = " + value + "; " + assign : null;
+            }
+
+            var current = "current$" + field.ordinal;
+            var assign = getApplyAssign(clazz, field, local + " != null ? " + local + ".applyTo(" + current + " != null ? " + current + " : " + created + ") : null");
+
+            return assign != null ? "var " + local + " = " + value + "; var " + current + " = " + current_value + "; " + assign : null;
+        }
+
+        if(field.base.asType() instanceof DeclaredType && hasNestedRequest(field.base.asType())) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "applyTo skips field with nested @RequestDTO type arguments. [" + clazz.getSimpleName() + "." + field.str_name + "]");
+            return null;
         }
+
+        return getApplyAssign(clazz, field, value);
+    }
+
+    private String getApplyAssign(TypeElement clazz, FieldContainer field, String value) {
+        var setter = APUtils.toSetter(field.str_name);
+        var has_setter = ElementFilter.methodsIn(elementUtils.getAllMembers(clazz)).stream().anyMatch(e ->
+            e.getSimpleName().toString().equals(setter) &&
+            e.getParameters().size() == 1 &&
+            !e.getModifiers().contains(Modifier.PRIVATE) &&
+            !e.getModifiers().contains(Modifier.STATIC)
+        );
+
+        //
+        // Сеттеры lombok на этапе обработки аннотаций еще не видны, поэтому ориентируемся на сами аннотации
+        //
+        if(has_setter || hasLombokSetter(field.base) || hasLombokSetter(clazz)) {
+            return "target." + setter + "(" + value + ");";
+        } else if(!field.base.getModifiers().contains(Modifier.PRIVATE)) {
+            return "target." + field.str_name + " = " + value + ";";
+        } else {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "applyTo skips private field without setter. [" + clazz.getSimpleName() + "." + field.str_name + "]");
+            return null;
+        }
+    }
+
+    /**
+     * Возвращает выражение, которое читает текущее значение поля цели, или null если его прочитать нельзя
+     */
+    private String getApplyCurrent(TypeElement clazz, FieldContainer field) {
+        var getter = APUtils.toGetter(field.str_name);
+        var has_getter = ElementFilter.methodsIn(elementUtils.getAllMembers(clazz)).stream().anyMatch(e ->
+            e.getSimpleName().toString().equals(getter) &&
+            e.getParameters().isEmpty() &&
+            !e.getModifiers().contains(Modifier.PRIVATE) &&
+            !e.getModifiers().contains(Modifier.STATIC)
+        );
+
+        if(has_getter || hasLombokGetter(field.base) || hasLombokGetter(clazz)) {
+            return "target." + getter + "()";
+        } else if(!field.base.getModifiers().contains(Modifier.PRIVATE)) {
+            return "target." + field.str_name;
+        } else {
+            return null;
+        }
+    }
+
+    private Boolean hasLombokGetter(Element element) {
+        return element.getAnnotationMirrors().stream().map(e -> e.getAnnotationType().toString()).anyMatch(e -> e.equals("lombok.Getter") || e.equals("lombok.Data"));
+    }
+
+    private Boolean hasLombokSetter(Element element) {
+        return element.getAnnotationMirrors().stream().map(e -> e.getAnnotationType().toString()).anyMatch(e -> e.equals("lombok.Setter") || e.equals("lombok.Data"));
+    }
+
+    private Boolean hasNestedRequest(TypeMirror type) {
+        if(type instanceof DeclaredType) {
+            for(var argument: ((DeclaredType) type).getTypeArguments()) {
+                var element = typeUtils.asElement(argument);
+
+                if(element != null && element.getAnnotation(RequestDTO.class) != null || hasNestedRequest(argument)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
     }
 
     private String getNewClassName(String input) {
         return input.endsWith("DTO") ? input.substring(0, input.length() - 3) + "RequestDTO" : input + "RequestDTO";
     }
 
+    private void makeDefaultBag(DefaultDatasetClassBag bag) {
+        var model = ClassSnapshot.of(bag);
+        var name = getNewBagName(model.simple_name);
+        var from_name = getNewClassName(model.simple_name);
+
+        sources.add(bag.clazz, model.pkg + "." + name, pw -> {
+            pw.println("package " + model.pkg + ";");
+            pw.print("\n");
+            pw.println("import io.github.asewhy.project.dto.optional.preprocessor.runtime.PublicBag;");
+            pw.println("import java.util.Map;");
+
+            pw.println("\n/**");
+            pw.println(" * Сгенерировано автоматически с помощью dto-optional-annotation-preprocessor");
+            pw.println(" * Этот класс хранит поля @see {@link " + from_name + "} в массиве по порядковому номеру поля, без HashMap.");
+            pw.println(" * Реализованно от класса @see {@link " + model.simple_name + "}");
+            pw.println(" */");
+
+            pw.println("class " + name + " extends PublicBag {");
+            pw.println("\tprivate static final Object NULL = new Object();");
+            pw.println("\tprivate static final String[] KEYS = { " + model.fields.stream().map(e -> "\"" + e.str_name + "\"").collect(Collectors.joining(", ")) + " };");
+            pw.print("\n");
+            pw.println("\tprivate final Object[] values = new Object[" + model.fields.size() + "];");
+            pw.print("\n");
+
+            //
+            // Строковый switch компилируется в поиск по hashCode, поэтому ключ находится без обращения к HashMap
+            //
+            pw.println("\tstatic int indexOf(String key) {");
+            pw.println("\t\tswitch (key) {");
+
+            for(var field: model.fields) {
+                pw.println("\t\t\tcase \"" + field.str_name + "\": return " + field.ordinal + ";");
+            }
+
+            pw.println("\t\t\tdefault: return -1;");
+            pw.println("\t\t}");
+            pw.println("\t}");
+            pw.print("\n");
+            pw.println("\tvoid put(int index, Object value) {");
+            pw.println("\t\tthis.values[index] = value != null ? value : NULL;");
+            pw.println("\t}");
+            pw.print("\n");
+            pw.println("\t@Override");
+            pw.println("\tpublic PublicBag set(String key, Object value) {");
+            pw.println("\t\tvar index = indexOf(key);");
+            pw.print("\n");
+            pw.println("\t\tif(index < 0) {");
+            pw.println("\t\t\treturn super.set(key, value);");
+            pw.println("\t\t}");
+            pw.print("\n");
+            pw.println("\t\tthis.put(index, value);");
+            pw.print("\n");
+            pw.println("\t\treturn this;");
+            pw.println("\t}");
+            pw.print("\n");
+            pw.println("\t@Override");
+            pw.println("\tprotected Boolean isSchemaKey(String key) {");
+            pw.println("\t\treturn indexOf(key) >= 0;");
+            pw.println("\t}");
+            pw.print("\n");
+            pw.println("\t@Override");
+            pw.println("\tpublic PublicBag remove(String key) {");
+            pw.println("\t\tvar index = indexOf(key);");
+            pw.print("\n");
+            pw.println("\t\tif(index < 0) {");
+            pw.println("\t\t\treturn super.remove(key);");
+            pw.println("\t\t}");
+            pw.print("\n");
+            pw.println("\t\tthis.values[index] = null;");
+            pw.print("\n");
+            pw.println("\t\treturn this;");
+            pw.println("\t}");
+            pw.print("\n");
+            pw.println("\t@Override");
+            pw.println("\tpublic Boolean has(String key) {");
+            pw.println("\t\tvar index = indexOf(key);");
+            pw.print("\n");
+            pw.println("\t\treturn index < 0 ? super.has(key) : this.values[index] != null;");
+            pw.println("\t}");
+            pw.print("\n");
+            pw.println("\t@Override");
+            pw.println("\tpublic Object get(String key) {");
+            pw.println("\t\tvar index = indexOf(key);");
+            pw.print("\n");
+            pw.println("\t\tif(index < 0) {");
+            pw.println("\t\t\treturn super.get(key);");
+            pw.println("\t\t}");
+            pw.print("\n");
+            pw.println("\t\treturn this.values[index] != NULL ? this.values[index] : null;");
+            pw.println("\t}");
+            pw.print("\n");
+            pw.println("\t@Override");
+            pw.println("\tpublic void fill(Map<String, Object> fill) {");
+            pw.println("\t\tsuper.fill(fill);");
+            pw.print("\n");
+            pw.println("\t\tfor(var i = 0; i < this.values.length; i++) {");
+            pw.println("\t\t\tif(this.values[i] != null) {");
+            pw.println("\t\t\t\tfill.put(KEYS[i], this.values[i] != NULL ? this.values[i] : null);");
+            pw.println("\t\t\t}");
+            pw.println("\t\t}");
+            pw.println("\t}");
+            pw.println("}");
+        });
+    }
+
+    private String getNewBagName(String input) {
+        return getNewClassName(input) + "Bag";
+    }
+
+    private String getNewDeserializerName(String input) {
+        return getNewClassName(input) + "Deserializer";
+    }
+
     private GenericBag getGenerics(TypeMirror from) {
         var root = typeUtils.asElement(from);
 
@@ -290,36 +850,93 @@ public class RequestDTOPreprocessor extends AbstractProcessor {
         FieldContainer field,
         PrintWriter pw,
         SettingsBag settings
-    ) throws NoSuchMethodException, InvocationTargetException, InstantiationException, IllegalAccessException {
+    ) {
         var write_anyone = false;
 
-        for(var processor: processors) {
-            if(processor.getConstructor(PrintWriter.class).newInstance(pw).process(field_element, field, true, settings)) {
+        for(var processor: processors.getFor(field_element)) {
+            if(processor.process(pw, field_element, field, true, settings)) {
                 write_anyone = true;
             }
         }
 
         if(!write_anyone) {
-            pw.println("\t@JsonProperty(\"" + APUtils.convertToCurrentCase(field.str_name, settings.policy) + "\")");
+            var plain_enum = APUtils.getPlainEnum(typeUtils.asElement(field_element.asType()));
+
+            if(plain_enum != null) {
+                pw.println("\t@JsonIgnore");
+            } else {
+                pw.println("\t@JsonProperty(\"" + APUtils.convertToCurrentCase(field.str_name, settings.policy) + "\")");
+            }
+
             pw.println("\tpublic void " + APUtils.toSetter(field.str_name) + "(" + field.str_type + " value) {");
-            pw.println("\t\tthis." + field.str_name + " = Optional.ofNullable(value);");
+            writeAssign(field, "value", pw, settings);
             pw.println("\t}");
+
+            //
+            // Перечисления читаются из строки сгенерированным парсером, а не рефлексивным десериализатором jackson
+            //
+            if(plain_enum != null) {
+                pw.print("\n");
+                pw.println("\t@JsonProperty(\"" + APUtils.convertToCurrentCase(field.str_name, settings.policy) + "\")");
+                pw.println("\tprotected void " + APUtils.toSetter(field.str_name) + "FromString(String value) {");
+                writeAssign(field, getEnumParserName(plain_enum) + "(value)", pw, settings);
+                pw.println("\t}");
+            }
+        }
+    }
+
+    private void writeAssign(FieldContainer field, String value, PrintWriter pw, SettingsBag settings) {
+        if(settings.presence == PresencePolicy.Bitmask) {
+            pw.println("\t\tthis." + field.str_name + " = " + value + ";");
+            pw.println("\t\t" + APUtils.toPresenceMark(field.ordinal));
+        } else {
+            pw.println("\t\tthis." + field.str_name + " = Optional.ofNullable(" + value + ");");
         }
     }
 
+    private String getEnumParserName(TypeElement enum_type) {
+        return "parse" + Arrays.stream(enum_type.getQualifiedName().toString().split("\\.")).map(APUtils::camelCase).collect(Collectors.joining());
+    }
+
+    private void writeEnumParser(TypeElement enum_type, PrintWriter pw) {
+        var name = enum_type.getQualifiedName().toString();
+
+        pw.print("\n");
+        pw.println("\tstatic " + name + " " + getEnumParserName(enum_type) + "(String value) {");
+        pw.println("\t\tif(value == null) {");
+        pw.println("\t\t\treturn null;");
+        pw.println("\t\t}\n");
+        pw.println("\t\tswitch (value) {");
+
+        for(var constant: APUtils.getEnumConstants(enum_type)) {
+            pw.println("\t\t\tcase \"" + constant + "\": return " + name + "." + constant + ";");
+        }
+
+        pw.println("\t\t\tdefault: throw new IllegalArgumentException(\"Unknown constant \" + value + \" of enum " + name + "\");");
+        pw.println("\t\t}");
+        pw.println("\t}");
+    }
+
+    private List<String> getFieldDeclarations(List<FieldContainer> fields) {
+        var declarations = new ArrayList<String>();
+
+        for(var field: fields) {
+            for(var processor: processors.getFor(field.base)) {
+                declarations.addAll(processor.getProvidedDeclarations(field.base));
+            }
+        }
+
+        return declarations.stream().distinct().collect(Collectors.toList());
+    }
+
     private List<String> getFieldConversionImports(Element current){
         var imports = new ArrayList<String>();
 
-        for(var processor_class: processors) {
-            try {
-                var processor = processor_class.getConstructor(PrintWriter.class).newInstance((PrintWriter) null);
-                var p_imports = processor.getProvidedImports(current);
+        for(var processor: processors.getFor(current)) {
+            var p_imports = processor.getProvidedImports(current);
 
-                if(p_imports != null) {
-                    imports.addAll(p_imports);
-                }
-            } catch (InstantiationException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-                e.printStackTrace();
+            if(p_imports != null) {
+                imports.addAll(p_imports);
             }
         }
 
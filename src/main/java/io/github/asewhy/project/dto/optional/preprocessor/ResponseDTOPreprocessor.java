@@ -1,13 +1,20 @@
 package io.github.asewhy.project.dto.optional.preprocessor;
 
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.DateFormat;
 import io.github.asewhy.project.dto.optional.preprocessor.annotations.RequestDTO;
 import io.github.asewhy.project.dto.optional.preprocessor.annotations.ResponseDTO;
 import io.github.asewhy.project.dto.optional.preprocessor.members.*;
+import io.github.asewhy.project.dto.optional.preprocessor.processors.DateFormatPreprocessor;
 import io.github.asewhy.project.dto.optional.preprocessor.scanner.CodeIdentifierUsageAnalyzer;
 import io.github.asewhy.project.dto.optional.preprocessor.scanner.CodeImportsAnalyzer;
 import io.github.asewhy.project.dto.optional.preprocessor.scanner.CodeMethodParametersAnalyzer;
 import io.github.asewhy.project.dto.optional.preprocessor.annotations.SkipNullCheck;
+import io.github.asewhy.project.dto.optional.preprocessor.enums.InclusionPolicy;
+import io.github.asewhy.project.dto.optional.preprocessor.enums.PresencePolicy;
 import io.github.asewhy.project.dto.optional.preprocessor.utils.APUtils;
+import io.github.asewhy.project.dto.optional.preprocessor.utils.Capabilities;
+import io.github.asewhy.project.dto.optional.preprocessor.utils.ProcessingStats;
+import io.github.asewhy.project.dto.optional.preprocessor.utils.SourceQueue;
 import com.sun.source.tree.StatementTree;
 import com.sun.source.tree.VariableTree;
 import com.sun.source.util.Trees;
@@ -16,25 +23,36 @@ import io.github.asewhy.project.dto.optional.preprocessor.utils.CallbackMatcher;
 import javax.annotation.processing.*;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
-import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @SupportedAnnotationTypes({ "io.github.asewhy.project.dto.optional.preprocessor.annotations.ResponseDTO" })
 @SupportedSourceVersion(SourceVersion.RELEASE_6)
+@SupportedOptions({ ProcessingStats.OPTION })
 public class ResponseDTOPreprocessor extends AbstractProcessor {
+    private static final Set<String> BINARY_COLLECTIONS = Set.of(
+        "java.util.Collection", "java.util.List", "java.util.ArrayList", "java.util.LinkedList", "java.util.Set",
+        "java.util.HashSet", "java.util.LinkedHashSet", "java.util.TreeSet", "java.util.EnumSet"
+    );
+    private static final Set<String> BINARY_MAPS = Set.of(
+        "java.util.Map", "java.util.HashMap", "java.util.LinkedHashMap", "java.util.TreeMap", "java.util.EnumMap"
+    );
+
     protected Trees trees;
     protected Types typeUtils;
     protected Elements elementUtils;
     protected Filer filter;
+    protected ProcessingStats stats;
+    protected SourceQueue sources;
 
     @Override
     public synchronized void init(ProcessingEnvironment processingEnv) {
@@ -42,13 +60,17 @@ public class ResponseDTOPreprocessor extends AbstractProcessor {
         var env = APUtils.unwrap(processingEnv);
         assert env != null;
         this.trees = Trees.instance(env);
-        this.typeUtils = env.getTypeUtils();
-        this.elementUtils = env.getElementUtils();
-        this.filter = env.getFiler();
+        this.typeUtils = processingEnv.getTypeUtils();
+        this.elementUtils = processingEnv.getElementUtils();
+        this.filter = processingEnv.getFiler();
+        this.stats = new ProcessingStats(processingEnv, "response");
+        this.sources = new SourceQueue();
     }
 
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        var capabilities = Capabilities.of(processingEnv, roundEnv);
+
         for (var clazz : roundEnv.getElementsAnnotatedWith(ResponseDTO.class)) {
             if(clazz.getKind() != ElementKind.CLASS) {
                 processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "The @ResponseDTO annotation is only allowed as class annotation");
@@ -57,17 +79,33 @@ public class ResponseDTOPreprocessor extends AbstractProcessor {
 
             var pkg = elementUtils.getPackageOf(clazz);
             var annotation = clazz.getAnnotation(ResponseDTO.class);
-            var serializer_enabled = APUtils.classesExists("com.fasterxml.jackson.core.JsonGenerator", "com.fasterxml.jackson.databind.SerializerProvider", "com.fasterxml.jackson.databind.ser.std.StdSerializer", "com.fasterxml.jackson.databind.annotation.JsonSerialize") && annotation.serializer();
+            var serializer_enabled = capabilities.jackson_serializer && annotation.serializer();
+            var started = stats.start();
 
             try {
                 if (serializer_enabled) {
                     makeDefaultSerializerFrom(clazz, pkg, annotation);
+
+                    if(annotation.view()) {
+                        for(var source: APUtils.getTypeMirrorFromAnnotationValue(() -> annotation.value())) {
+                            makeDefaultViewFrom(clazz, pkg, annotation, (TypeElement) typeUtils.asElement(source));
+                        }
+                    }
                 }
 
                 makeDefaultResponseFrom(clazz, serializer_enabled, annotation, pkg);
             } catch (Exception e) {
                 processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.toString());
             }
+
+            stats.total(clazz, started);
+        }
+
+        sources.flush(filter, processingEnv.getMessager(), stats);
+
+        if(roundEnv.processingOver()) {
+            stats.report(filter, processingEnv.getMessager());
+            APUtils.clearCaches();
         }
 
         return true;
@@ -77,6 +115,7 @@ public class ResponseDTOPreprocessor extends AbstractProcessor {
         var bag = new DefaultDatasetClassBag();
         var settings = new SettingsBag();
         var super_class = ((TypeElement) ((DeclaredType) clazz.asType()).asElement()).getSuperclass();
+        var started = stats.start();
 
         bag.new_name = getNewSerializerName(clazz.getSimpleName().toString());
         bag.base_class = super_class.getKind() != TypeKind.NONE ? typeUtils.asElement(super_class) : null;
@@ -84,6 +123,7 @@ public class ResponseDTOPreprocessor extends AbstractProcessor {
         bag.pkg = pkg;
 
         settings.policy = annotation.policy();
+        settings.inclusion = annotation.inclusion();
 
         for(var current: ElementFilter.fieldsIn(clazz.getEnclosedElements())) {
             var type = getGenerics(current.asType());
@@ -99,23 +139,37 @@ public class ResponseDTOPreprocessor extends AbstractProcessor {
                 result.annotations = type.getAnnotations();
 
                 bag.fields.add(result);
+
+                if(APUtils.getPlainEnum(typeUtils.asElement(current.asType())) != null) {
+                    bag.imports.add("java.util.Arrays");
+                }
+
+                if(current.getAnnotation(DateFormat.class) != null) {
+                    bag.imports.addAll(DateFormatPreprocessor.getFormatterImports(current));
+                }
             }
         }
 
         bag.imports.add("com.fasterxml.jackson.databind.ser.std.StdSerializer");
         bag.imports.add("com.fasterxml.jackson.databind.SerializerProvider");
         bag.imports.add("com.fasterxml.jackson.core.JsonGenerator");
+        bag.imports.add("com.fasterxml.jackson.core.SerializableString");
+        bag.imports.add("com.fasterxml.jackson.core.io.SerializedString");
         bag.imports.add("java.io.IOException");
 
+        stats.record(clazz, "extract", started);
+
         makeDefaultSerializer(bag, settings);
     }
 
     private void makeDefaultResponseFrom(Element clazz, Boolean serializer_enabled, ResponseDTO annotation, PackageElement pkg) throws Exception {
         var bag = new DefaultDatasetClassBag();
+        var settings = new SettingsBag();
         var parent_imports = getImports(clazz);
         var fields = new HashMap<String, FieldContainer>();
         var classElement = ((TypeElement) ((DeclaredType) clazz.asType()).asElement());
         var superClazz = classElement.getSuperclass();
+        var started = stats.start();
 
         bag.new_name = getNewClassName(clazz.getSimpleName().toString());
         bag.base_class = superClazz.getKind() != TypeKind.NONE ? typeUtils.asElement(superClazz) : null;
@@ -123,344 +177,1653 @@ public class ResponseDTOPreprocessor extends AbstractProcessor {
         bag.clazz = clazz;
         bag.pkg = pkg;
 
+        settings.policy = annotation.policy();
+        settings.presence = annotation.presence();
+
         for(var current: ElementFilter.fieldsIn(clazz.getEnclosedElements())) {
             var type = getGenerics(current.asType());
 
-            if (type != null) {
-                var result = new FieldContainer();
+            if (type != null) {
+                var result = new FieldContainer();
+
+                result.base = current;
+                result.str_type = type.getRoot(false);
+                result.str_type_annotations = type.getRoot(true);
+                result.root_type = type.fullRoot;
+                result.str_name = current.getSimpleName().toString();
+                result.str_access = current.getModifiers().stream().map(e -> e.toString().toLowerCase(Locale.ROOT)).collect(Collectors.joining(" "));
+                result.annotations = type.getAnnotations();
+                result.ordinal = bag.fields.size();
+
+                fields.put(result.str_name, result);
+
+                bag.imports.addAll(type.getImports());
+                bag.fields.add(result);
+            }
+        }
+
+        if(bag.base_class != null) {
+            var type = typeUtils.asElement(bag.base_class.asType());
+
+            if(type instanceof TypeElement) {
+                var typeElement = (TypeElement) type;
+
+                if(!typeElement.getSimpleName().toString().equals("Object")) {
+                    bag.imports.add(typeElement.getQualifiedName().toString());
+                }
+            }
+        }
+
+        stats.record(clazz, "extract", started);
+
+        started = stats.start();
+
+        for(var constructor: APUtils.getTypeMirrorFromAnnotationValue(() -> annotation.value())) {
+            var computed = createConstructorFor(
+                (TypeElement) typeUtils.asElement(constructor),
+                fields,
+                bag.new_name,
+                parent_imports,
+                clazz,
+                serializer_enabled,
+                annotation.maxDepth()
+            );
+
+            bag.constructors.add(computed.data);
+            bag.imports.addAll(computed.imports);
+        }
+
+        var source_types = APUtils.getTypeMirrorFromAnnotationValue(() -> annotation.value());
+
+        for(var source: source_types) {
+            var computed = createFactoriesFor((TypeElement) typeUtils.asElement(source), bag.new_name, source_types.size() > 1, serializer_enabled ? getNewSerializerName(clazz.getSimpleName().toString()) : null, annotation.maxDepth());
+
+            bag.constructors.add(computed.data);
+            bag.imports.addAll(computed.imports);
+        }
+
+        if(annotation.binary()) {
+            var computed = createBinaryCodecFor(bag, serializer_enabled);
+
+            bag.constructors.add(computed.data);
+            bag.imports.addAll(computed.imports);
+            bag.interfaces.add("Externalizable");
+        }
+
+        stats.record(clazz, "constructor", started);
+
+        if(serializer_enabled && source_types.size() > 0) {
+            bag.constructors.add(
+                "\tprivate static SerializerProvider getProvider(JsonGenerator gen) {\n" +
+                "\t\tif(gen.getCodec() instanceof ObjectMapper) {\n" +
+                "\t\t\treturn ((ObjectMapper) gen.getCodec()).getSerializerProviderInstance();\n" +
+                "\t\t}\n\n" +
+                "\t\tthrow new IllegalStateException(\"JsonGenerator codec is not an ObjectMapper, pass SerializerProvider explicitly\");\n" +
+                "\t}"
+            );
+
+            bag.imports.add("com.fasterxml.jackson.databind.ObjectMapper");
+        }
+
+        if(serializer_enabled) {
+            bag.imports.add("com.fasterxml.jackson.databind.annotation.JsonSerialize");
+        }
+
+        if(!serializer_enabled || settings.presence == PresencePolicy.Bitmask) {
+            bag.imports.remove("java.util.Optional");
+        }
+
+        makeDefaultResponseClass(bag, serializer_enabled, settings);
+    }
+
+    private void makeDefaultResponseClass(DefaultDatasetClassBag bag, Boolean serializer_enabled, SettingsBag settings) throws Exception {
+        var extendable = bag.clazz instanceof TypeElement;
+
+        if(extendable) {
+            var tClazz = (TypeElement) bag.clazz;
+            var modifiers = tClazz.getModifiers();
+            var constructors = ElementFilter.constructorsIn(tClazz.getEnclosedElements());
+
+            if(bag.clazz.getSimpleName().toString().equals("Object")) {
+                throw new Exception("Base class cannot be object. [" + bag.clazz.getSimpleName() + "]");
+            }
+
+            if(modifiers.contains(Modifier.FINAL)) {
+                throw new Exception("DTO class cannot be final. [" + bag.clazz.getSimpleName() + "]");
+            }
+
+            if(modifiers.contains(Modifier.PRIVATE)) {
+                throw new Exception("DTO class cannot be private. [" + bag.clazz.getSimpleName() + "]");
+            }
+
+            if(constructors.stream().noneMatch(e -> e.getParameters().size() == 0)) {
+                throw new Exception("No default constrictor for base class. [" + bag.clazz.getSimpleName() + "]");
+            }
+        }
+
+        var model = ClassSnapshot.of(bag);
+        var serializer_name = getNewSerializerName(model.simple_name);
+
+        //
+        // Без сериализатора признак наличия поля не нужен
+        //
+        var bitmask = serializer_enabled && settings.presence == PresencePolicy.Bitmask;
+        var optional = serializer_enabled && !bitmask;
+
+        sources.add(bag.clazz, model.getQualifiedName(), pw -> {
+            pw.println("package " + model.pkg + ";");
+            pw.print("\n");
+
+            for(var field: model.imports) {
+                pw.println("import " + field + ";");
+            }
+
+            pw.println("\n/**");
+            pw.println(" * Сгенерировано автоматически с помощью dto-optional-annotation-preprocessor");
+            pw.println(" * Этот класс можно использовать как ответ сервера, тут предусмотрен свой сериализатор");
+            pw.println(" * Это реализация Data Transfer Object для ответа. Реализованно от класса @see {@link " + model.simple_name + "}");
+            pw.println(" */");
+
+            if(serializer_enabled) {
+                pw.println("@JsonSerialize(using = " + serializer_name + ".class)");
+            }
+
+            pw.print("public class " + model.new_name);
+
+            if(extendable) {
+                pw.print(" extends " + model.simple_name);
+            }
+
+            if(model.interfaces.size() > 0) {
+                pw.print(" implements " + String.join(", ", model.interfaces));
+            }
+
+            pw.println(" {");
+
+            if(model.fields.size() > 0) {
+                for (var field : model.fields) {
+                    if(optional) {
+                        pw.println("\t" + field.str_access + " Optional<" + field.str_type_annotations + "> " + field.str_name + ";");
+                    } else {
+                        pw.println("\t" + field.str_access + " " + field.str_type_annotations + " " + field.str_name + ";");
+                    }
+                }
+
+                if(bitmask) {
+                    for(var i = 0; i < model.fields.size(); i += 64) {
+                        pw.println("\tprivate long " + APUtils.toPresenceField(i) + ";");
+                    }
+                }
+
+                pw.print("\n");
+            }
+
+            pw.println("\tpublic " + model.new_name + "() {");
+
+            if(extendable) {
+                pw.println("\t\tsuper();\n");
+            }
+
+            for(var field: model.fields) {
+                pw.print("\t\tthis.");
+                pw.print(field.str_name);
+                pw.print(" = ");
+                pw.print((field.constant == null ? null : (optional ? "Optional.ofNullable(" : "") + field.constant + (optional ? ")" : "")));
+                pw.println(";");
+
+                if(bitmask && field.constant != null) {
+                    pw.println("\t\t" + APUtils.toPresenceMark(field.ordinal));
+                }
+            }
+
+            pw.println("\t}");
+
+            //
+            // Возврат к состоянию после конструктора по умолчанию, используется writeAll
+            //
+            pw.print("\n");
+            pw.println("\tprivate void clearAll() {");
+
+            if(bitmask) {
+                for(var i = 0; i < model.fields.size(); i += 64) {
+                    pw.println("\t\tthis." + APUtils.toPresenceField(i) + " = 0L;");
+                }
+            }
+
+            //
+            // Final поля уже проинициализированы конструктором и не меняются, но бит наличия после сброса маски
+            // нужно вернуть
+            //
+            for(var field: model.fields) {
+                if(field.is_final) {
+                    if(bitmask && field.constant != null) {
+                        pw.println("\t\t" + APUtils.toPresenceMark(field.ordinal));
+                    }
+
+                    continue;
+                }
+
+                pw.print("\t\tthis.");
+                pw.print(field.str_name);
+                pw.print(" = ");
+                pw.print((field.constant == null ? null : (optional ? "Optional.ofNullable(" : "") + field.constant + (optional ? ")" : "")));
+                pw.println(";");
+
+                if(bitmask && field.constant != null) {
+                    pw.println("\t\t" + APUtils.toPresenceMark(field.ordinal));
+                }
+            }
+
+            pw.println("\t}");
+
+            for(var constructor: model.constructors) {
+                pw.print("\n");
+                pw.println(constructor);
+            }
+
+            for(var field: model.fields) {
+                if(bitmask) {
+                    pw.print("\n");
+                    pw.println("\tpublic boolean has" + APUtils.camelCase(field.str_name) + "Field() {");
+                    pw.println("\t\treturn " + APUtils.toPresenceCheck(field.ordinal) + ";");
+                    pw.println("\t}");
+                } else if(optional) {
+                    pw.print("\n");
+                    pw.println("\tpublic Boolean has" + APUtils.camelCase(field.str_name) + "Field() {");
+                    pw.println("\t\treturn this." + field.str_name + " != null ? true : false;");
+                    pw.println("\t}");
+                }
+
+                pw.print("\n");
+                pw.println("\tpublic " + field.str_type_annotations + " get" + APUtils.camelCase(field.str_name) + "(" + field.str_type + " def) {");
+
+                if(bitmask) {
+                    pw.println("\t\treturn " + APUtils.toPresenceCheck(field.ordinal) + " && this." + field.str_name + " != null ? this." + field.str_name + " : def;");
+                } else if(optional) {
+                    pw.println("\t\treturn this." + field.str_name + " != null ? this." + field.str_name + ".orElse(def) : def;");
+                } else {
+                    pw.println("\t\treturn this." + field.str_name + " != null ? this." + field.str_name + " : def;");
+                }
+
+                pw.println("\t}");
+                pw.print("\n");
+                pw.println("\tpublic " + field.str_type_annotations + " get" + APUtils.camelCase(field.str_name) + "() {");
+                pw.println("\t\treturn this.get" + APUtils.camelCase(field.str_name) + "(null);");
+                pw.println("\t}");
+                pw.print("\n");
+
+                if(!field.is_final) {
+                    pw.println("\tpublic void clear" + APUtils.camelCase(field.str_name) + "() {");
+                    pw.println("\t\tthis." + field.str_name + " = null;");
+
+                    if(bitmask) {
+                        pw.println("\t\tthis." + APUtils.toPresenceField(field.ordinal) + " &= ~" + APUtils.toPresenceMask(field.ordinal) + ";");
+                    }
+
+                    pw.println("\t}");
+                    pw.print("\n");
+
+                    if(bitmask) {
+                        pw.println("\tpublic void set" + APUtils.camelCase(field.str_name) + "(final " + field.str_type + " value) {");
+                        pw.println("\t\tthis." + field.str_name + " = value;");
+                        pw.println("\t\t" + APUtils.toPresenceMark(field.ordinal));
+                        pw.println("\t}");
+                    } else if(optional) {
+                        pw.println("\tpublic void set" + APUtils.camelCase(field.str_name) + "(final " + field.str_type + " value) {");
+                        pw.println("\t\tthis." + field.str_name + " = Optional.ofNullable(value);");
+                        pw.println("\t}");
+                    } else {
+                        pw.println("\tpublic void set" + APUtils.camelCase(field.str_name) + "(final " + field.str_type + " value) {");
+                        pw.println("\t\tthis." + field.str_name + " = value;");
+                        pw.println("\t}");
+                    }
+                }
+            }
+
+            pw.println("}");
+        });
+    }
+
+    private void makeDefaultSerializer(DefaultDatasetClassBag bag, SettingsBag settings) {
+        var model = ClassSnapshot.of(bag);
+        var from_name = getNewClassName(model.simple_name);
+        var field_names = buildFieldNames(bag.clazz, settings);
+        var body = buildThree(bag.clazz, settings);
+
+        sources.add(bag.clazz, model.getQualifiedName(), pw -> {
+            pw.println("package " + model.pkg + ";");
+            pw.print("\n");
+
+            for(var field: model.imports) {
+                pw.println("import " + field + ";");
+            }
+
+            pw.println("\n/**");
+            pw.println(" * Сгенерировано автоматически с помощью dto-optional-annotation-preprocessor");
+            pw.println(" * Этот класс используется для сериализации объекта @see {@link " + from_name + "}.");
+            pw.println(" * Реализованно от класса @see {@link " + model.simple_name + "}");
+            pw.println(" */");
+
+            pw.println("class " + model.new_name + " extends StdSerializer<" + from_name +"> {");
+            pw.print(field_names);
+            pw.println("\tpublic " + model.new_name + "() {");
+            pw.println("\t\tsuper(" + from_name + ".class);");
+            pw.println("\t}");
+            pw.print("\n");
+            pw.println("\tpublic " + model.new_name + "(Class<" + from_name + "> from) {");
+            pw.println("\t\tsuper(from);");
+            pw.println("\t}");
+
+            pw.print("\n");
+            pw.println("\t@Override");
+            pw.println("\tpublic void serialize(" + from_name + " value, JsonGenerator gen, SerializerProvider provider) throws IOException {");
+            pw.println(body);
+            pw.println("\t}");
+
+            pw.println("}");
+        });
+    }
+
+    private void makeDefaultViewFrom(Element clazz, PackageElement pkg, ResponseDTO annotation, TypeElement source) {
+        var settings = new SettingsBag();
+        var imports = new ArrayList<String>();
+        var view_name = getNewViewName((TypeElement) clazz, source);
+        var serializer_name = view_name + "Serializer";
+
+        settings.policy = annotation.policy();
+        settings.inclusion = annotation.inclusion();
+
+        imports.add(source.getQualifiedName().toString());
+
+        for(var current: ElementFilter.fieldsIn(clazz.getEnclosedElements())) {
+            if(APUtils.getPlainEnum(typeUtils.asElement(current.asType())) != null) {
+                imports.add("java.util.Arrays");
+            }
+
+            if(current.getAnnotation(DateFormat.class) != null) {
+                imports.addAll(DateFormatPreprocessor.getFormatterImports(current));
+            }
+        }
+
+        var body = buildViewThree((TypeElement) clazz, source, imports, settings);
+        var field_names = buildFieldNames(clazz, settings);
+        var pack = pkg.getQualifiedName().toString();
+        var source_name = source.getQualifiedName().toString();
+        var source_simple_name = source.getSimpleName().toString();
+        var simple_name = clazz.getSimpleName().toString();
+
+        imports.add("com.fasterxml.jackson.databind.ser.std.StdSerializer");
+        imports.add("com.fasterxml.jackson.databind.SerializerProvider");
+        imports.add("com.fasterxml.jackson.core.JsonGenerator");
+        imports.add("com.fasterxml.jackson.core.SerializableString");
+        imports.add("com.fasterxml.jackson.core.io.SerializedString");
+        imports.add("java.io.IOException");
+        imports.add("io.github.asewhy.project.dto.optional.preprocessor.runtime.ConversionContext");
+
+        var max_depth = annotation.maxDepth() == Integer.MAX_VALUE ? "" : String.valueOf(annotation.maxDepth());
+        var serializer_imports = imports.stream().filter(e -> !e.startsWith("java.lang.") && e.contains(".")).distinct().collect(Collectors.toUnmodifiableList());
+
+        sources.add(clazz, pack + "." + view_name, pw -> {
+            pw.println("package " + pack + ";");
+            pw.print("\n");
+            pw.println("import " + source_name + ";");
+            pw.println("import com.fasterxml.jackson.databind.annotation.JsonSerialize;");
+
+            pw.println("\n/**");
+            pw.println(" * Сгенерировано автоматически с помощью dto-optional-annotation-preprocessor");
+            pw.println(" * Представление объекта @see {@link " + source_simple_name + "} без копирования полей, поля читаются из исходного объекта при сериализации.");
+            pw.println(" * Реализованно от класса @see {@link " + simple_name + "}");
+            pw.println(" */");
+            pw.println("@JsonSerialize(using = " + serializer_name + ".class)");
+            pw.println("public class " + view_name + " {");
+            pw.println("\tprivate final " + source_simple_name + " source;");
+            pw.print("\n");
+            pw.println("\tpublic " + view_name + "(" + source_simple_name + " source) {");
+            pw.println("\t\tthis.source = source;");
+            pw.println("\t}");
+            pw.print("\n");
+            pw.println("\tpublic " + source_simple_name + " getSource() {");
+            pw.println("\t\treturn this.source;");
+            pw.println("\t}");
+            pw.println("}");
+        });
+
+        sources.add(clazz, pack + "." + serializer_name, pw -> {
+            pw.println("package " + pack + ";");
+            pw.print("\n");
+
+            for(var current: serializer_imports) {
+                pw.println("import " + current + ";");
+            }
+
+            pw.println("\n/**");
+            pw.println(" * Сгенерировано автоматически с помощью dto-optional-annotation-preprocessor");
+            pw.println(" * Этот класс используется для сериализации объекта @see {@link " + view_name + "}, значения берутся из геттеров исходного объекта.");
+            pw.println(" * Реализованно от класса @see {@link " + simple_name + "}");
+            pw.println(" */");
+            pw.println("class " + serializer_name + " extends StdSerializer<" + view_name + "> {");
+            pw.print(field_names);
+            pw.println("\tpublic " + serializer_name + "() {");
+            pw.println("\t\tsuper(" + view_name + ".class);");
+            pw.println("\t}");
+            pw.print("\n");
+            pw.println("\t@Override");
+            pw.println("\tpublic void serialize(" + view_name + " value, JsonGenerator gen, SerializerProvider provider) throws IOException {");
+            pw.println("\t\twrite(value.getSource(), gen, provider);");
+            pw.println("\t}");
+            pw.print("\n");
+            pw.println("\t/**");
+            pw.println("\t * Контекст записи общий на весь вызов маппера и лежит в атрибутах provider, так его видят и представления");
+            pw.println("\t * из других пакетов, которые пишутся через provider.defaultSerializeValue.");
+            pw.println("\t */");
+            pw.println("\tstatic void write(" + source_simple_name + " from, JsonGenerator gen, SerializerProvider provider) throws IOException {");
+            pw.println("\t\tvar context = (ConversionContext) provider.getAttribute(ConversionContext.class);");
+            pw.print("\n");
+            pw.println("\t\tif(context != null) {");
+            pw.println("\t\t\twrite(from, gen, provider, context);");
+            pw.println("\t\t\treturn;");
+            pw.println("\t\t}");
+            pw.print("\n");
+            pw.println("\t\tif(from == null) {");
+            pw.println("\t\t\tgen.writeNull();");
+            pw.println("\t\t\treturn;");
+            pw.println("\t\t}");
+            pw.print("\n");
+            pw.println("\t\tcontext = new ConversionContext(" + max_depth + ").begin(from, " + view_name + ".class);");
+            pw.print("\n");
+            pw.println("\t\tprovider.setAttribute(ConversionContext.class, context);");
+            pw.print("\n");
+            pw.println("\t\ttry {");
+            pw.println("\t\t\twriteFields(from, gen, provider, context);");
+            pw.println("\t\t} finally {");
+            pw.println("\t\t\tprovider.setAttribute(ConversionContext.class, null);");
+            pw.println("\t\t}");
+            pw.println("\t}");
+            pw.print("\n");
+            pw.println("\t/**");
+            pw.println("\t * Запись вложенного объекта. Для обратной ссылки и при превышении maxDepth пишется null.");
+            pw.println("\t */");
+            pw.println("\tstatic void write(" + source_simple_name + " from, JsonGenerator gen, SerializerProvider provider, ConversionContext context) throws IOException {");
+            pw.println("\t\tif(from == null || !context.enter(from, " + view_name + ".class)) {");
+            pw.println("\t\t\tgen.writeNull();");
+            pw.println("\t\t\treturn;");
+            pw.println("\t\t}");
+            pw.print("\n");
+            pw.println("\t\ttry {");
+            pw.println("\t\t\twriteFields(from, gen, provider, context);");
+            pw.println("\t\t} finally {");
+            pw.println("\t\t\tcontext.exit(from, " + view_name + ".class);");
+            pw.println("\t\t}");
+            pw.println("\t}");
+            pw.print("\n");
+            pw.println("\tprivate static void writeFields(" + source_simple_name + " from, JsonGenerator gen, SerializerProvider provider, ConversionContext context) throws IOException {");
+            pw.println(body);
+            pw.println("\t}");
+            pw.println("}");
+        });
+    }
+
+    /**
+     * Тело сериализатора представления. Сопоставление полей то же, что и в createConstructorFor: геттер с тем же именем
+     * и типом, вложенный @ResponseDTO от типа геттера, коллекция таких dto, либо путь через вложенный объект (productId
+     * -> getProduct().getId()).
+     */
+    private String buildViewThree(TypeElement clazz, TypeElement source, List<String> imports, SettingsBag settings) {
+        var builder = new StringBuilder();
+        var char_trip = "\t\t";
+        var source_methods = ElementFilter.methodsIn(elementUtils.getAllMembers(source)).stream()
+            .filter(e -> e.getModifiers().contains(Modifier.PUBLIC) && !e.getModifiers().contains(Modifier.STATIC) && e.getParameters().size() == 0)
+            .collect(Collectors.toMap(e -> e.getSimpleName().toString(), e -> e, (a, b) -> a));
+        var source_fields = ElementFilter.fieldsIn(source.getEnclosedElements());
+        var skip_count = 0;
+
+        builder.append(char_trip).append("gen.writeStartObject();\n\n");
+
+        var dto_fields = ElementFilter.fieldsIn(clazz.getEnclosedElements());
+
+        for(var field: dto_fields) {
+            var name = field.getSimpleName().toString();
+            var name_constant = getFieldNameConstant(dto_fields.indexOf(field), name);
+            var local = "value$" + name;
+            var getter = source_methods.get(APUtils.toGetter(name));
+            var read = (String) null;
+            var read_type = (TypeMirror) null;
+            var is_path = false;
+
+            if(getter != null) {
+                read = "from." + getter.getSimpleName() + "()";
+                read_type = getter.getReturnType();
+            } else {
+                //
+                // productId => from.getProduct().getId()
+                //
+                for(var source_field: source_fields) {
+                    var prefix = source_field.getSimpleName().toString();
+                    var owner_getter = source_methods.get(APUtils.toGetter(prefix));
+
+                    if(name.length() > prefix.length() && name.startsWith(prefix) && owner_getter != null && asTypeElement(owner_getter.getReturnType()) != null && !owner_getter.getReturnType().getKind().isPrimitive()) {
+                        var rest = name.substring(prefix.length());
+
+                        rest = rest.startsWith("_") ? rest.substring(1) : rest;
+                        rest = rest.substring(0, 1).toLowerCase(Locale.ROOT) + rest.substring(1);
+
+                        var rest_getter = APUtils.toGetter(rest);
+                        var rest_method = ElementFilter.methodsIn(elementUtils.getAllMembers(asTypeElement(owner_getter.getReturnType()))).stream()
+                            .filter(e -> e.getSimpleName().toString().equals(rest_getter) && e.getParameters().size() == 0 && e.getModifiers().contains(Modifier.PUBLIC))
+                            .findFirst()
+                            .orElse(null);
+
+                        if(rest_method != null && isSameValueType(rest_method.getReturnType(), field.asType())) {
+                            read = "from." + owner_getter.getSimpleName() + "() != null ? from." + owner_getter.getSimpleName() + "()." + rest_getter + "() : null";
+                            //
+                            // Выражение с проверкой на null всегда дает объектный тип
+                            //
+                            read_type = rest_method.getReturnType().getKind().isPrimitive() ? typeUtils.boxedClass((PrimitiveType) rest_method.getReturnType()).asType() : rest_method.getReturnType();
+                            is_path = true;
+                            break;
+                        }
+                    }
+                }
+            }
+
+            var write = read != null ? buildViewWrite(field, read_type, local, imports, elementUtils.getPackageOf(clazz)) : null;
+
+            if(write == null) {
+                skip_count++;
+                continue;
+            }
+
+            var empty_check = settings.inclusion == InclusionPolicy.OmitEmpty ? getEmptyCheck(read_type, local) : null;
+            //
+            // Конструктор dto не задает поле, если геттер коллекции, карты, массива или вложенного dto вернул null,
+            // и сериализатор dto такое поле не пишет. Представление должно давать тот же json
+            //
+            var absent_on_null = !is_path && isAbsentOnNull(field, source_fields, read_type);
+
+            builder.append(char_trip).append("var ").append(local).append(" = ").append(read).append(";\n\n");
+
+            if(read_type.getKind().isPrimitive()) {
+                builder.append(char_trip).append("gen.writeFieldName(").append(name_constant).append(");\n\n");
+                builder.append(char_trip).append(write).append("\n\n");
+            } else if(settings.inclusion != InclusionPolicy.WriteNulls || absent_on_null) {
+                builder.append(char_trip).append("if(").append(local).append(" != null").append(empty_check != null ? " && !" + empty_check : "").append(") {\n");
+                builder.append(char_trip).append("\tgen.writeFieldName(").append(name_constant).append(");\n\n");
+                builder.append(Arrays.stream(write.split("\n")).map(e -> e.isEmpty() ? e : char_trip + "\t" + e).collect(Collectors.joining("\n"))).append("\n");
+                builder.append(char_trip).append("}\n\n");
+            } else {
+                builder.append(char_trip).append("gen.writeFieldName(").append(name_constant).append(");\n\n");
+                builder.append(char_trip).append("if(").append(local).append(" != null) {\n");
+                builder.append(Arrays.stream(write.split("\n")).map(e -> e.isEmpty() ? e : char_trip + "\t" + e).collect(Collectors.joining("\n"))).append("\n");
+                builder.append(char_trip).append("} else {\n");
+                builder.append(char_trip).append("\tgen.writeNull();\n");
+                builder.append(char_trip).append("}\n\n");
+            }
+        }
+
+        stats.skipped(clazz, skip_count);
+
+        if(skip_count > 0) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "When creating the view " + getNewViewName(clazz, source) + " -> " + source.getSimpleName() + " " + skip_count + " fields were omitted", clazz);
+        }
+
+        builder.append(char_trip).append("gen.writeEndObject();");
+
+        return builder.toString();
+    }
+
+    /**
+     * Повторяет проверки createConstructorFor: коллекции, карты, массивы и вложенные dto копируются только если геттер
+     * вернул не null (без @SkipNullCheck), остальные значения задаются всегда, в том числе null.
+     */
+    private Boolean isAbsentOnNull(VariableElement field, List<VariableElement> source_fields, TypeMirror read_type) {
+        var source_field = source_fields.stream().filter(e -> e.getSimpleName().contentEquals(field.getSimpleName())).findFirst().orElse(null);
+
+        if(field.getAnnotation(SkipNullCheck.class) != null || source_field != null && source_field.getAnnotation(SkipNullCheck.class) != null) {
+            return false;
+        }
+
+        if(read_type.getKind() == TypeKind.ARRAY || !isSameValueType(read_type, field.asType())) {
+            return true;
+        }
+
+        var read_element = asTypeElement(read_type);
+
+        return read_element != null && List.of(
+            "java.util.LinkedHashSet",
+            "java.util.HashSet",
+            "java.util.EnumSet",
+            "java.util.TreeSet",
+            "java.util.Set",
+            "java.util.LinkedList",
+            "java.util.ArrayList",
+            "java.util.List",
+            "java.util.LinkedHashMap",
+            "java.util.HashMap",
+            "java.util.TreeMap",
+            "java.util.EnumMap",
+            "java.util.Map"
+        ).contains(read_element.getQualifiedName().toString());
+    }
+
+    private String buildViewWrite(VariableElement field, TypeMirror read_type, String value, List<String> imports, Element pkg) {
+        var field_type = field.asType();
+
+        if(isSameValueType(read_type, field_type)) {
+            if(field.getAnnotation(DateFormat.class) != null && DateFormatPreprocessor.getFormatExpression(field, value) != null) {
+                return "gen.writeString(" + DateFormatPreprocessor.getFormatExpression(field, value) + ");";
+            }
+
+            var write = buildWithTypeOf(field_type, value);
+
+            return (write != null ? write : "provider.defaultSerializeValue(" + value + ", gen)") + ";";
+        }
+
+        var nested = getViewNestedWrite(field_type, read_type, value, imports, pkg);
+
+        if(nested != null) {
+            return nested + ";";
+        }
+
+        var field_arguments = field_type instanceof DeclaredType ? ((DeclaredType) field_type).getTypeArguments() : List.<TypeMirror>of();
+        var read_arguments = read_type instanceof DeclaredType ? ((DeclaredType) read_type).getTypeArguments() : List.<TypeMirror>of();
+
+        //
+        // Карта вложенных dto пишется как объект, ключ - имя константы для перечислений и toString для остальных
+        //
+        if(
+            field_arguments.size() == 2 && read_arguments.size() == 2 && typeUtils.isSameType(field_arguments.get(0), read_arguments.get(0)) &&
+            typeUtils.isAssignable(typeUtils.erasure(read_type), typeUtils.erasure(elementUtils.getTypeElement("java.util.Map").asType()))
+        ) {
+            var item = getViewNestedWrite(field_arguments.get(1), read_arguments.get(1), "entry.getValue()", imports, pkg);
+            var key_type = asTypeElement(read_arguments.get(0));
+            var key = key_type != null && key_type.getKind() == ElementKind.ENUM ? "entry.getKey().name()" :
+                key_type != null && key_type.getQualifiedName().contentEquals("java.lang.String") ? "entry.getKey()" : "String.valueOf(entry.getKey())";
+
+            if(item != null) {
+                return "gen.writeStartObject();\n\n" +
+                    "for(var entry: " + value + ".entrySet()) {\n" +
+                    "\tgen.writeFieldName(" + key + ");\n\n" +
+                    "\tif(entry.getValue() != null) {\n" +
+                    "\t\t" + item + ";\n" +
+                    "\t} else {\n" +
+                    "\t\tgen.writeNull();\n" +
+                    "\t}\n" +
+                    "}\n\n" +
+                    "gen.writeEndObject();";
+            }
+        }
+
+        //
+        // Коллекция или массив вложенных dto пишется как массив, элементы пишутся тем же способом что и вложенное поле
+        //
+        var field_item = field_type.getKind() == TypeKind.ARRAY ? ((ArrayType) field_type).getComponentType() : field_arguments.size() == 1 ? field_arguments.get(0) : null;
+        var read_item = read_type.getKind() == TypeKind.ARRAY ? ((ArrayType) read_type).getComponentType() : read_arguments.size() == 1 ? read_arguments.get(0) : null;
+
+        if(
+            field_item != null && read_item != null && (
+                read_type.getKind() == TypeKind.ARRAY && field_type.getKind() == TypeKind.ARRAY ||
+                typeUtils.isAssignable(typeUtils.erasure(read_type), typeUtils.erasure(elementUtils.getTypeElement("java.lang.Iterable").asType()))
+            )
+        ) {
+            var item = getViewNestedWrite(field_item, read_item, "item", imports, pkg);
+
+            if(item != null) {
+                return "gen.writeStartArray();\n\n" +
+                    "for(var item: " + value + ") {\n" +
+                    "\tif(item != null) {\n" +
+                    "\t\t" + item + ";\n" +
+                    "\t} else {\n" +
+                    "\t\tgen.writeNull();\n" +
+                    "\t}\n" +
+                    "}\n\n" +
+                    "gen.writeEndArray();";
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Запись вложенного @ResponseDTO. Если у вложенного dto есть представление в том же пакете, его сериализатор
+     * вызывается напрямую, без создания обертки, иначе исходный объект конвертируется в dto.
+     */
+    private String getViewNestedWrite(TypeMirror field_type, TypeMirror read_type, String value, List<String> imports, Element pkg) {
+        var dto = asTypeElement(field_type);
+        var read = asTypeElement(read_type);
+        var annotation = dto != null ? dto.getAnnotation(ResponseDTO.class) : null;
+
+        if(annotation == null || read == null || read_type.getKind().isPrimitive()) {
+            return null;
+        }
+
+        var source_types = APUtils.getTypeMirrorFromAnnotationValue(() -> annotation.value()).stream()
+            .map(e -> (TypeElement) typeUtils.asElement(e))
+            .collect(Collectors.toList());
+        var source = source_types.stream().filter(e -> e.getQualifiedName().contentEquals(read.getQualifiedName())).findFirst().orElse(null);
+
+        if(source == null) {
+            return null;
+        }
+
+        var dto_pkg = elementUtils.getPackageOf(dto);
+
+        if(annotation.view() && annotation.serializer()) {
+            var view_name = getNewViewName(dto, source);
+
+            if(dto_pkg.equals(pkg)) {
+                return view_name + "Serializer.write(" + value + ", gen, provider, context)";
+            }
+
+            imports.add(dto_pkg.getQualifiedName() + "." + view_name);
+
+            return "provider.defaultSerializeValue(new " + view_name + "(" + value + "), gen)";
+        }
+
+        var dto_name = getNewClassName(dto.getSimpleName().toString());
+
+        imports.add(dto_pkg.getQualifiedName() + "." + dto_name);
+
+        return "provider.defaultSerializeValue(context.convert(" + value + ", " + dto_name + ".class, " + dto_name + "::new), gen)";
+    }
+
+    private Boolean isSameValueType(TypeMirror a, TypeMirror b) {
+        var boxed_a = a.getKind().isPrimitive() ? typeUtils.boxedClass((PrimitiveType) a).asType() : a;
+        var boxed_b = b.getKind().isPrimitive() ? typeUtils.boxedClass((PrimitiveType) b).asType() : b;
+
+        return typeUtils.isSameType(boxed_a, boxed_b);
+    }
+
+    /**
+     * Имя представления. Если у dto несколько исходных классов, представление создается на каждый и получает имя
+     * исходного класса в конце.
+     */
+    private String getNewViewName(TypeElement dto, TypeElement source) {
+        var input = dto.getSimpleName().toString();
+        var annotation = dto.getAnnotation(ResponseDTO.class);
+        var name = input.endsWith("DTO") ? input.substring(0, input.length() - 3) + "ResponseView" : input + "ResponseView";
+
+        return APUtils.getTypeMirrorFromAnnotationValue(() -> annotation.value()).size() > 1 ? name + "Of" + source.getSimpleName() : name;
+    }
+
+    private String getNewRequestClassName(String input) {
+        return input.endsWith("DTO") ? input.substring(0, input.length() - 3) + "RequestDTO" : input + "RequestDTO";
+    }
+
+    private String getNewClassName(String input) {
+        return input.endsWith("DTO") ? input.substring(0, input.length() - 3) + "ResponseDTO" : input + "ResponseDTO";
+    }
+
+    private String getNewSerializerName(String input) {
+        return getNewClassName(input) + "Serializer";
+    }
+
+    /**
+     * Порядковый номер поля в имени нужен, т.к. someField и some_field дают одинаковое имя в snake case
+     */
+    private String getFieldNameConstant(Integer ordinal, String field_name) {
+        return "FIELD_" + ordinal + "_" + APUtils.toSnakeCase(field_name).toUpperCase(Locale.ROOT);
+    }
+
+    private String getEnumNamesConstant(TypeElement enum_type) {
+        return "ENUM_" + APUtils.toSnakeCase(enum_type.getQualifiedName().toString().replace('.', '_')).toUpperCase(Locale.ROOT);
+    }
+
+    private String buildFieldNames(Element from, SettingsBag settings) {
+        var builder = new StringBuilder();
+        var enums = new LinkedHashMap<String, TypeElement>();
+        var formatters = new LinkedHashSet<String>();
+
+        //
+        // Имена полей кодируются один раз при загрузке сериализатора, а не при записи каждого объекта
+        //
+        var from_fields = ElementFilter.fieldsIn(from.getEnclosedElements());
+
+        for(var field: from_fields) {
+            builder
+                .append("\tprivate static final SerializableString ")
+                .append(getFieldNameConstant(from_fields.indexOf(field), field.getSimpleName().toString()))
+                .append(" = new SerializedString(\"")
+                .append(APUtils.convertToCurrentCase(field.getSimpleName().toString(), settings.policy))
+            .append("\");\n");
+
+            var plain_enum = APUtils.getPlainEnum(typeUtils.asElement(field.asType()));
+
+            if(plain_enum != null) {
+                enums.put(plain_enum.getQualifiedName().toString(), plain_enum);
+            }
+
+            if(field.getAnnotation(DateFormat.class) != null && DateFormatPreprocessor.getFormatterDeclaration(field) != null) {
+                formatters.add(DateFormatPreprocessor.getFormatterDeclaration(field));
+            }
+        }
+
+        for(var formatter: formatters) {
+            builder.append("\t").append(formatter).append("\n");
+        }
+
+        //
+        // Имена констант перечислений, индекс в массиве - ordinal() константы
+        //
+        for(var plain_enum: enums.values()) {
+            builder
+                .append("\tprivate static final SerializableString[] ")
+                .append(getEnumNamesConstant(plain_enum))
+                .append(" = Arrays.stream(")
+                .append(plain_enum.getQualifiedName())
+                .append(".values()).map(e -> new SerializedString(e.name())).toArray(SerializableString[]::new);\n");
+        }
+
+        if(builder.length() > 0) {
+            builder.append("\n");
+        }
+
+        return builder.toString();
+    }
+
+    private String buildThree(Element from, SettingsBag settings){
+        var builder = new StringBuilder();
+        var char_trip = "\t\t";
+        var from_fields = ElementFilter.fieldsIn(from.getEnclosedElements());
+
+        builder.append(char_trip).append("gen.writeStartObject();\n\n");
+
+        for(var field: from_fields) {
+            var getter = APUtils.toGetter(field.getSimpleName().toString());
+            var ordinal = from_fields.indexOf(field);
+            var field_name = getFieldNameConstant(ordinal, field.getSimpleName().toString());
+            var local = "value$" + ordinal;
+            var build_with_field = field.getAnnotation(DateFormat.class) != null && DateFormatPreprocessor.getFormatExpression(field, local) != null ?
+                "gen.writeString(" + DateFormatPreprocessor.getFormatExpression(field, local) + ")" :
+                buildWithTypeOf(field.asType(), local);
+
+            var write = build_with_field != null ? build_with_field + ";" : "provider.defaultSerializeValue(" + local + ", gen);";
+
+            //
+            // Геттер читается один раз, для Optional и битовой маски каждое обращение не бесплатно
+            //
+            builder.append(char_trip).append("if(value.has").append(APUtils.camelCase(field.getSimpleName().toString())).append("Field()) {\n");
+            builder.append(char_trip).append("\tvar ").append(local).append(" = value.").append(getter).append("();\n\n");
+
+            //
+            // Политика включения раскрывается здесь, в сериализаторе остаются только проверки нужные для этого поля
+            //
+            if(settings.inclusion != null && settings.inclusion != InclusionPolicy.WriteNulls) {
+                var empty_check = settings.inclusion == InclusionPolicy.OmitEmpty ? getEmptyCheck(field.asType(), local) : null;
+
+                builder
+                    .append(char_trip).append("\tif(").append(local).append(" != null")
+                    .append(empty_check != null ? " && !" + empty_check : "").append(") {\n")
+                    .append(char_trip).append("\t\tgen.writeFieldName(").append(field_name).append(");\n")
+                    .append(char_trip).append("\t\t").append(write).append("\n")
+                    .append(char_trip).append("\t}\n")
+                .append(char_trip).append("}\n\n");
+
+                continue;
+            }
+
+            builder.append(char_trip).append("\tgen.writeFieldName(").append(field_name).append(");\n\n");
+            builder.append(char_trip).append("\tif(").append(local).append(" != null) {\n");
+            builder.append(char_trip).append("\t\t").append(write).append("\n");
+
+            builder
+                .append(char_trip)
+                .append("\t} else {\n")
+                .append(char_trip)
+                .append("\t\tgen.writeNull();\n")
+                .append(char_trip)
+                .append("\t}\n")
+                .append(char_trip)
+            .append("}\n\n");
+        }
+
+        builder.append(char_trip).append("gen.writeEndObject();");
+
+        return builder.toString();
+    }
+
+    /**
+     * Проверка на пустое значение для OmitEmpty, null если у типа нет понятия пустоты
+     */
+    private String getEmptyCheck(TypeMirror type, String value) {
+        if(type.getKind() == TypeKind.ARRAY) {
+            return "(" + value + ".length == 0)";
+        }
+
+        if(!(type instanceof DeclaredType)) {
+            return null;
+        }
+
+        var erasure = typeUtils.erasure(type);
+
+        if(typeUtils.isAssignable(erasure, typeUtils.erasure(elementUtils.getTypeElement("java.lang.CharSequence").asType()))) {
+            return "(" + value + ".length() == 0)";
+        }
+
+        if(
+            typeUtils.isAssignable(erasure, typeUtils.erasure(elementUtils.getTypeElement("java.util.Collection").asType())) ||
+            typeUtils.isAssignable(erasure, typeUtils.erasure(elementUtils.getTypeElement("java.util.Map").asType()))
+        ) {
+            return value + ".isEmpty()";
+        }
+
+        return null;
+    }
+
+    private String buildWithTypeOf(TypeMirror type, String value) {
+        var el_type = asTypeElement(type);
+        var plain_enum = APUtils.getPlainEnum(el_type);
+
+        if(plain_enum != null) {
+            return "gen.writeString(" + getEnumNamesConstant(plain_enum) + "[" + value + ".ordinal()])";
+        }
+
+        if(el_type != null) {
+            //
+            // Формат даты и времени фиксируется на этапе компиляции - ISO 8601, так же как у jackson-datatype-jsr310 с выключенным WRITE_DATES_AS_TIMESTAMPS
+            //
+            switch (el_type.getQualifiedName().toString()) {
+                case "java.lang.String": return "gen.writeString(" + value + ")";
+                case "java.lang.Boolean": return "gen.writeBoolean(" + value + ")";
+                case "java.lang.Character": return "gen.writeString(String.valueOf(" + value + "))";
+                case "java.util.UUID": return "gen.writeString(" + value + ".toString())";
+                case "java.lang.Byte":
+                case "java.lang.Float":
+                case "java.lang.Short":
+                case "java.lang.Double":
+                case "java.lang.Long":
+                case "java.lang.Integer":
+                case "java.math.BigDecimal":
+                case "java.math.BigInteger": return "gen.writeNumber(" + value + ")";
+                case "java.time.LocalDate": return "gen.writeString(java.time.format.DateTimeFormatter.ISO_LOCAL_DATE.format(" + value + "))";
+                case "java.time.LocalDateTime": return "gen.writeString(java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(" + value + "))";
+                case "java.time.OffsetDateTime": return "gen.writeString(java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(" + value + "))";
+                case "java.time.Instant": return "gen.writeString(java.time.format.DateTimeFormatter.ISO_INSTANT.format(" + value + "))";
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Возвращает элемент типа, примитивы при этом упаковываются (int -> java.lang.Integer)
+     */
+    private TypeElement asTypeElement(TypeMirror type) {
+        var element = typeUtils.asElement(type.getKind().isPrimitive() ? typeUtils.boxedClass((PrimitiveType) type).asType() : type);
+
+        return element instanceof TypeElement ? (TypeElement) element : null;
+    }
+
+    /**
+     * Реализация коллекции, которая создается при копировании поля объявленного типа. Для Set используется
+     * LinkedHashSet, чтобы сохранить порядок исходной коллекции.
+     */
+    private String getCollectionImplementation(String collection_type) {
+        switch (collection_type) {
+            case "java.util.HashSet": return "HashSet";
+            case "java.util.TreeSet": return "TreeSet";
+            case "java.util.EnumSet": return "EnumSet";
+            case "java.util.LinkedList": return "LinkedList";
+            case "java.util.LinkedHashSet", "java.util.Set": return "LinkedHashSet";
+            default: return "ArrayList";
+        }
+    }
+
+    private String getCollectionCapacity(String implementation, String size) {
+        switch (implementation) {
+            case "ArrayList": return size;
+            case "HashSet", "LinkedHashSet": return "(int) (" + size + " / 0.75f) + 1";
+            default: return "";
+        }
+    }
+
+    /**
+     * Возвращает имя класса, в который нужно сконвертировать элемент типа source, чтобы получить элемент типа target.
+     * Конверсия возможна, если у target есть конструктор от source, или target - @ResponseDTO от source.
+     */
+    private String getElementConversion(TypeMirror source, TypeMirror target, ConstructorBag bag) {
+        var source_element = asTypeElement(source);
+        var target_element = asTypeElement(target);
+
+        if(source_element == null || target_element == null || source.getKind().isPrimitive() || target.getKind().isPrimitive()) {
+            return null;
+        }
+
+        var source_name = source_element.getQualifiedName().toString();
+        var has_constructor = ElementFilter.constructorsIn(target_element.getEnclosedElements()).stream().anyMatch(e -> {
+            var param = e.getParameters().stream().findFirst().orElse(null);
+            var type_param = param != null ? typeUtils.asElement(param.asType()) : null;
+
+            return type_param instanceof TypeElement && ((TypeElement) type_param).getQualifiedName().toString().equals(source_name);
+        });
+        var response_dto_annotation = target_element.getAnnotation(ResponseDTO.class);
+
+        if(
+            has_constructor || response_dto_annotation != null &&
+                APUtils.getTypeMirrorFromAnnotationValue(() -> response_dto_annotation.value()).stream()
+                    .map(e -> ((TypeElement) typeUtils.asElement(e)).getQualifiedName())
+                    .anyMatch(e -> e.toString().equals(source_name))
+        ) {
+            var name = target_element.getSimpleName().toString();
+
+            bag.imports.add(target_element.getQualifiedName().toString());
+
+            return response_dto_annotation != null ? getNewClassName(name) : name;
+        }
+
+        return null;
+    }
+
+    /**
+     * Копирование карты. Ключи переносятся как есть, значения либо копируются, либо конвертируются в цикле по entrySet
+     * в карту заранее известного размера.
+     */
+    private String getMapConversion(
+        DeclaredType source,
+        DeclaredType target,
+        String map_type,
+        FieldContainer mirror,
+        String getter_signature,
+        String indent,
+        ConstructorBag bag
+    ) {
+        var source_arguments = source.getTypeArguments();
+        var target_arguments = target.getTypeArguments();
+
+        if(source_arguments.size() != 2 || target_arguments.size() != 2 || !typeUtils.isSameType(source_arguments.get(0), target_arguments.get(0))) {
+            return null;
+        }
+
+        var implementation = switch (map_type) {
+            case "java.util.HashMap" -> "HashMap";
+            case "java.util.TreeMap" -> "TreeMap";
+            case "java.util.EnumMap" -> "EnumMap";
+            default -> "LinkedHashMap";
+        };
+
+        bag.imports.add("java.util." + implementation);
+
+        if(typeUtils.isSameType(source_arguments.get(1), target_arguments.get(1))) {
+            return indent + "this." + APUtils.toSetter(mirror.str_name) + "(new " + implementation + "<>(from." + getter_signature + "()));";
+        }
+
+        var element_name = getElementConversion(source_arguments.get(1), target_arguments.get(1), bag);
+
+        if(element_name == null) {
+            return null;
+        }
+
+        var source_name = "source$" + mirror.str_name;
+        var result_name = "result$" + mirror.str_name;
+        var allocation = switch (implementation) {
+            case "TreeMap" -> source_name + ".comparator()";
+            case "EnumMap" -> asTypeElement(source_arguments.get(0)).getSimpleName() + ".class";
+            default -> "(int) (" + source_name + ".size() / 0.75f) + 1";
+        };
+
+        if(implementation.equals("EnumMap")) {
+            bag.imports.add(asTypeElement(source_arguments.get(0)).getQualifiedName().toString());
+        }
+
+        return indent + "var " + source_name + " = from." + getter_signature + "();" +
+            indent + mirror.str_type + " " + result_name + " = new " + implementation + "<>(" + allocation + ");\n" +
+            indent + "for(var entry: " + source_name + ".entrySet()) {" +
+            getAddStatement(indent + "\t", result_name + ".put(entry.getKey(), %s);", getConstructCall(element_name, isResponseConversion(target_arguments.get(1)), "entry.getValue()")) +
+            indent + "}\n" +
+            indent + "this." + APUtils.toSetter(mirror.str_name) + "(" + result_name + ");";
+    }
+
+    /**
+     * Копирование массива. Массив того же типа (в том числе примитивный) клонируется, массив конвертируемых элементов
+     * заполняется по индексу.
+     */
+    private String getArrayConversion(
+        TypeMirror source,
+        TypeMirror target,
+        FieldContainer mirror,
+        String getter_signature,
+        String indent,
+        ConstructorBag bag
+    ) {
+        if(typeUtils.isSameType(source, target)) {
+            return indent + "this." + APUtils.toSetter(mirror.str_name) + "(from." + getter_signature + "().clone());";
+        }
+
+        var element_name = getElementConversion(source, target, bag);
+
+        if(element_name == null) {
+            return null;
+        }
+
+        var source_name = "source$" + mirror.str_name;
+        var result_name = "result$" + mirror.str_name;
+
+        return indent + "var " + source_name + " = from." + getter_signature + "();" +
+            indent + "var " + result_name + " = new " + element_name + "[" + source_name + ".length];\n" +
+            indent + "for(var i = 0; i < " + source_name + ".length; i++) {" +
+            indent + "\t" + result_name + "[i] = " + getConstructCall(element_name, isResponseConversion(target), source_name + "[i]") + ";" +
+            indent + "}\n" +
+            indent + "this." + APUtils.toSetter(mirror.str_name) + "(" + result_name + ");";
+    }
+
+    private Boolean isResponseConversion(TypeMirror target) {
+        var target_element = asTypeElement(target);
+
+        return target_element != null && target_element.getAnnotation(ResponseDTO.class) != null;
+    }
+
+    /**
+     * Вложенные response dto создаются через контекст конвертации, остальные типы - обычным конструктором
+     */
+    private String getConstructCall(String name, Boolean response, String value) {
+        return response ? "context.convert(" + value + ", " + name + ".class, " + name + "::new)" : "new " + name + "(" + value + ")";
+    }
+
+    /**
+     * Контекст возвращает null для циклов и при превышении глубины, такие элементы в коллекцию не добавляются
+     */
+    private String getAddStatement(String indent, String statement, String value) {
+        if(value.startsWith("context.")) {
+            return indent + "var item = " + value + ";\n" + indent + "if(item != null) {" + indent + "\t" + String.format(statement, "item") + indent + "}";
+        } else {
+            return indent + String.format(statement, value);
+        }
+    }
 
-                result.base = current;
-                result.str_type = type.getRoot(false);
-                result.str_type_annotations = type.getRoot(true);
-                result.root_type = type.fullRoot;
-                result.str_name = current.getSimpleName().toString();
-                result.str_access = current.getModifiers().stream().map(e -> e.toString().toLowerCase(Locale.ROOT)).collect(Collectors.joining(" "));
-                result.annotations = type.getAnnotations();
+    /**
+     * Статические методы пакетной конвертации. Если исходных классов несколько, к имени метода добавляется имя
+     * исходного класса, т.к. перегрузки по Collection<? extends X> имеют одинаковое стирание.
+     */
+    private ConstructorBag createFactoriesFor(TypeElement element, String constructor_name, Boolean multiple, String serializer_name, Integer max_depth) {
+        var bag = new ConstructorBag();
+        var simple_name = element.getSimpleName().toString();
+        var conversion_name = element.getAnnotation(RequestDTO.class) != null ? getNewRequestClassName(simple_name) : simple_name;
+        var method_name = multiple ? "fromAll" + simple_name : "fromAll";
 
-                fields.put(result.str_name, result);
+        bag.data = "\tpublic static List<" + constructor_name + "> " + method_name + "(Collection<? extends " + conversion_name + "> from) {\n" +
+            "\t\treturn BulkConversion.convertAll(from, " + constructor_name + "::new);\n" +
+            "\t}\n\n" +
+            "\tpublic static List<" + constructor_name + "> " + method_name + "(Collection<? extends " + conversion_name + "> from, Executor executor, int threshold) {\n" +
+            "\t\treturn BulkConversion.convertAll(from, " + constructor_name + "::new, executor, threshold);\n" +
+            "\t}";
 
-                bag.imports.addAll(type.getImports());
-                bag.fields.add(result);
-            }
+        //
+        // Потоковая запись: один экземпляр dto очищается и заполняется заново для каждого элемента, поэтому память не
+        // зависит от количества элементов. writeLines пишет NDJSON - по объекту на строку.
+        //
+        if(serializer_name != null) {
+            var write_name = multiple ? "writeAll" + simple_name : "writeAll";
+            var lines_name = multiple ? "writeLines" + simple_name : "writeLines";
+
+            bag.data += "\n\n" +
+                "\tpublic static void " + write_name + "(Stream<? extends " + conversion_name + "> from, JsonGenerator gen) throws IOException {\n" +
+                "\t\t" + write_name + "(from.iterator(), gen);\n" +
+                "\t}\n\n" +
+                "\tpublic static void " + write_name + "(Iterator<? extends " + conversion_name + "> from, JsonGenerator gen) throws IOException {\n" +
+                "\t\t" + write_name + "(from, gen, getProvider(gen), false);\n" +
+                "\t}\n\n" +
+                "\tpublic static void " + lines_name + "(Stream<? extends " + conversion_name + "> from, JsonGenerator gen) throws IOException {\n" +
+                "\t\t" + lines_name + "(from.iterator(), gen);\n" +
+                "\t}\n\n" +
+                "\tpublic static void " + lines_name + "(Iterator<? extends " + conversion_name + "> from, JsonGenerator gen) throws IOException {\n" +
+                "\t\t" + write_name + "(from, gen, getProvider(gen), true);\n" +
+                "\t}\n\n" +
+                "\tpublic static void " + write_name + "(Iterator<? extends " + conversion_name + "> from, JsonGenerator gen, SerializerProvider provider, boolean lines) throws IOException {\n" +
+                "\t\tvar scratch = new " + constructor_name + "();\n" +
+                "\t\tvar serializer = new " + serializer_name + "();\n" +
+                "\t\tvar printer = gen.getPrettyPrinter();\n\n" +
+                //
+                // Геттера для разделителя корневых значений у генератора нет, поэтому на время записи строк ставится
+                // принтер без разделителя и отступов, а после записи возвращается прежний
+                //
+                "\t\tif(lines) {\n" +
+                "\t\t\tgen.setPrettyPrinter(new MinimalPrettyPrinter(\"\"));\n" +
+                "\t\t} else {\n" +
+                "\t\t\tgen.writeStartArray();\n" +
+                "\t\t}\n\n" +
+                "\t\ttry {\n" +
+                "\t\t\twhile(from.hasNext()) {\n" +
+                "\t\t\t\tvar current = from.next();\n\n" +
+                "\t\t\t\tif(current != null) {\n" +
+                "\t\t\t\t\tscratch.clearAll();\n" +
+                "\t\t\t\t\tscratch.fillFrom(current, new ConversionContext(" + (max_depth == Integer.MAX_VALUE ? "" : max_depth) + ").begin(current, " + constructor_name + ".class));\n" +
+                "\t\t\t\t\tserializer.serialize(scratch, gen, provider);\n" +
+                "\t\t\t\t} else {\n" +
+                "\t\t\t\t\tgen.writeNull();\n" +
+                "\t\t\t\t}\n\n" +
+                "\t\t\t\tif(lines) {\n" +
+                "\t\t\t\t\tgen.writeRaw('\\n');\n" +
+                "\t\t\t\t}\n" +
+                "\t\t\t}\n" +
+                "\t\t} finally {\n" +
+                "\t\t\tif(lines) {\n" +
+                "\t\t\t\tgen.setPrettyPrinter(printer);\n" +
+                "\t\t\t}\n" +
+                "\t\t}\n\n" +
+                "\t\tif(!lines) {\n" +
+                "\t\t\tgen.writeEndArray();\n" +
+                "\t\t}\n" +
+                "\t}";
+
+            bag.imports.add("com.fasterxml.jackson.core.JsonGenerator");
+            bag.imports.add("com.fasterxml.jackson.databind.SerializerProvider");
+            bag.imports.add("com.fasterxml.jackson.core.util.MinimalPrettyPrinter");
+            bag.imports.add("io.github.asewhy.project.dto.optional.preprocessor.runtime.ConversionContext");
+            bag.imports.add("java.io.IOException");
+            bag.imports.add("java.util.Iterator");
+            bag.imports.add("java.util.stream.Stream");
         }
 
-        if(bag.base_class != null) {
-            var type = typeUtils.asElement(bag.base_class.asType());
+        bag.imports.add("io.github.asewhy.project.dto.optional.preprocessor.runtime.BulkConversion");
+        bag.imports.add("java.util.concurrent.Executor");
+        bag.imports.add("java.util.Collection");
+        bag.imports.add("java.util.List");
 
-            if(type instanceof TypeElement) {
-                var typeElement = (TypeElement) type;
+        return bag;
+    }
 
-                if(!typeElement.getSimpleName().toString().equals("Object")) {
-                    bag.imports.add(typeElement.getQualifiedName().toString());
-                }
-            }
+    /**
+     * Бинарный кодек dto для кэшей: хэш схемы, битовые маски "поле задано" и "значение не null", затем значения
+     * заданных полей в порядке объявления, каждое своим методом DataOutput. Final поля не пишутся, т.к. их нельзя
+     * прочитать обратно.
+     */
+    private ConstructorBag createBinaryCodecFor(DefaultDatasetClassBag bag, Boolean presence) {
+        var result = new ConstructorBag();
+        var fields = bag.fields.stream().filter(e -> !e.base.getModifiers().contains(Modifier.FINAL)).collect(Collectors.toList());
+        var schema = new StringBuilder(bag.clazz.getSimpleName());
+        var write = new StringBuilder();
+        var read = new StringBuilder();
+
+        write.append("\tpublic void writeTo(DataOutput out) throws IOException {\n");
+        read.append("\tpublic void readFrom(DataInput in) throws IOException {\n");
+        read.append("\t\tBinaryCodec.checkSchema(in, BINARY_SCHEMA, ").append(bag.new_name).append(".class);\n");
+
+        for(var i = 0; i < fields.size(); i++) {
+            write.append("\t\tvar value$").append(i).append(" = this.").append(APUtils.toGetter(fields.get(i).str_name)).append("();\n");
         }
 
-        for(var constructor: APUtils.getTypeMirrorFromAnnotationValue(() -> annotation.value())) {
-            var computed = createConstructorFor(
-                (TypeElement) typeUtils.asElement(constructor),
-                fields,
-                bag.new_name,
-                parent_imports,
-                clazz,
-                serializer_enabled
-            );
-
-            bag.constructors.add(computed.data);
-            bag.imports.addAll(computed.imports);
+        for(var i = 0; i < fields.size(); i += 64) {
+            write.append("\t\tvar present$").append(i / 64).append(" = 0L;\n");
+            write.append("\t\tvar values$").append(i / 64).append(" = 0L;\n");
         }
 
-        if(serializer_enabled) {
-            bag.imports.add("com.fasterxml.jackson.databind.annotation.JsonSerialize");
-        } else {
-            bag.imports.remove("java.util.Optional");
+        for(var i = 0; i < fields.size(); i++) {
+            var field = fields.get(i);
+            var mask = APUtils.toPresenceMask(i);
+            var has = presence ? "this.has" + APUtils.camelCase(field.str_name) + "Field()" : "value$" + i + " != null";
+
+            write.append("\t\tpresent$").append(i / 64).append(" |= ").append(has).append(" ? ").append(mask).append(" : 0L;\n");
+            write.append("\t\tvalues$").append(i / 64).append(" |= value$").append(i).append(" != null ? ").append(mask).append(" : 0L;\n");
         }
 
-        makeDefaultResponseClass(bag, serializer_enabled);
-    }
+        write.append("\n\t\tout.writeLong(BINARY_SCHEMA);\n");
 
-    private void makeDefaultResponseClass(DefaultDatasetClassBag bag, Boolean serializer_enabled) throws IOException {
-        var file = filter.createSourceFile(bag.pkg.getQualifiedName() + "." + bag.new_name);
+        for(var i = 0; i < fields.size(); i += 64) {
+            write.append("\t\tout.writeLong(present$").append(i / 64).append(");\n");
+            write.append("\t\tout.writeLong(values$").append(i / 64).append(");\n");
+            read.append("\n\t\tvar present$").append(i / 64).append(" = in.readLong();\n");
+            read.append("\t\tvar values$").append(i / 64).append(" = in.readLong();\n");
+        }
 
-        try (var w = file.openWriter()) {
-            var pack = bag.pkg.getQualifiedName().toString();
-            var pw = new PrintWriter(w);
+        for(var i = 0; i < fields.size(); i++) {
+            var field = fields.get(i);
+            var type = field.base.asType();
+            var mask = APUtils.toPresenceMask(i);
+            var value = "value$" + i;
+            var field_write = getBinaryWrite(type, value, "\n\t\t\t", 0, result.imports, schema);
+            var field_read = getBinaryRead(type, value, "\n\t\t\t", 0, result.imports);
 
-            pw.println("package " + pack + ";");
-            pw.print("\n");
+            schema.append(";").append(field.str_name).append(":").append(field.str_type);
 
-            for(var field: bag.imports.stream().filter(e -> !e.startsWith("java.lang.") && e.contains(".")).distinct().collect(Collectors.toList())) {
-                pw.println("import " + field + ";");
-            }
+            if(field_write == null || field_read == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Type " + field.str_type + " is not supported by binary codec, writeTo will throw NotSerializableException for non null value", field.base);
 
-            pw.println("\n/**");
-            pw.println(" * Сгенерировано автоматически с помощью dto-optional-annotation-preprocessor");
-            pw.println(" * Этот класс можно использовать как ответ сервера, тут предусмотрен свой сериализатор");
-            pw.println(" * Это реализация Data Transfer Object для ответа. Реализованно от класса @see {@link " + bag.clazz.getSimpleName() + "}");
-            pw.println(" */");
+                field_write = "\n\t\t\tthrow new NotSerializableException(\"" + bag.new_name + "." + field.str_name + "\");";
+                field_read = null;
 
-            if(serializer_enabled) {
-                pw.println("@JsonSerialize(using = " + getNewSerializerName(bag.clazz.getSimpleName().toString()) + ".class)");
+                result.imports.add("java.io.NotSerializableException");
             }
 
-            pw.print("public class " + bag.new_name);
+            write.append("\n\t\tif(").append(value).append(" != null) {").append(field_write).append("\n\t\t}\n");
 
-            if(bag.clazz instanceof TypeElement) {
-                var tClazz = (TypeElement) bag.clazz;
-                var modifiers = tClazz.getModifiers();
-                var constructors = ElementFilter.constructorsIn(tClazz.getEnclosedElements());
+            read.append("\n\t\tif((present$").append(i / 64).append(" & ").append(mask).append(") == 0) {\n");
+            read.append("\t\t\tthis.clear").append(APUtils.camelCase(field.str_name)).append("();\n");
+            read.append("\t\t} else if((values$").append(i / 64).append(" & ").append(mask).append(") == 0) {\n");
+            read.append("\t\t\tthis.").append(APUtils.toSetter(field.str_name)).append("(null);\n");
+            read.append("\t\t} else {\n");
 
-                if(bag.clazz == null) {
-                    throw new Exception("No executable class . [" + bag.new_name + "]");
-                }
-
-                if(bag.clazz.getSimpleName().toString().equals("Object")) {
-                    throw new Exception("Base class cannot be object. [" + bag.clazz.getSimpleName() + "]");
-                }
+            if(field_read != null) {
+                read.append("\t\t\t").append(field.str_type).append(" ").append(value).append(";\n");
+                read.append(field_read.substring(1)).append("\n");
+                read.append("\t\t\tthis.").append(APUtils.toSetter(field.str_name)).append("(").append(value).append(");\n");
+            } else {
+                read.append(field_write.substring(1)).append("\n");
+            }
 
-                if(modifiers.contains(Modifier.FINAL)) {
-                    throw new Exception("DTO class cannot be final. [" + bag.clazz.getSimpleName() + "]");
-                }
+            read.append("\t\t}\n");
+        }
 
-                if(modifiers.contains(Modifier.PRIVATE)) {
-                    throw new Exception("DTO class cannot be private. [" + bag.clazz.getSimpleName() + "]");
-                }
+        write.append("\t}");
+        read.append("\t}");
+
+        result.data = "\tprivate static final long BINARY_SCHEMA = " + APUtils.toSchemaHash(schema.toString()) + ";\n" +
+            "\tprivate static final long serialVersionUID = BINARY_SCHEMA;\n\n" +
+            write + "\n\n" +
+            read + "\n\n" +
+            "\t@Override\n" +
+            "\tpublic void writeExternal(ObjectOutput out) throws IOException {\n" +
+            "\t\tthis.writeTo(out);\n" +
+            "\t}\n\n" +
+            "\t@Override\n" +
+            "\tpublic void readExternal(ObjectInput in) throws IOException {\n" +
+            "\t\tthis.readFrom(in);\n" +
+            "\t}";
+
+        result.imports.add("io.github.asewhy.project.dto.optional.preprocessor.runtime.BinaryCodec");
+        result.imports.add("java.io.DataInput");
+        result.imports.add("java.io.DataOutput");
+        result.imports.add("java.io.Externalizable");
+        result.imports.add("java.io.IOException");
+        result.imports.add("java.io.ObjectInput");
+        result.imports.add("java.io.ObjectOutput");
 
-                if(constructors.stream().noneMatch(e -> e.getParameters().size() == 0)) {
-                    throw new Exception("No default constrictor for base class. [" + bag.clazz.getSimpleName() + "]");
-                }
+        return result;
+    }
 
-                pw.print(" extends " + bag.clazz.getSimpleName());
+    /**
+     * Запись значения типа type, который уже проверен на null. Элементы коллекций, карт и массивов предваряются
+     * признаком null. Вернет null, если тип не поддерживается.
+     */
+    private String getBinaryWrite(TypeMirror type, String value, String indent, Integer depth, List<String> imports, StringBuilder schema) {
+        var item = "item$" + depth;
+
+        if(type.getKind() == TypeKind.ARRAY) {
+            var component = ((ArrayType) type).getComponentType();
+            var element = component.getKind().isPrimitive() ?
+                getBinaryWrite(component, item, indent + "\t", depth + 1, imports, schema) :
+                getNullableBinaryWrite(component, item, indent + "\t", depth + 1, imports, schema);
+
+            if(element == null) {
+                return null;
             }
 
-            pw.println(" {");
+            return indent + "out.writeInt(" + value + ".length);" +
+                indent + "for(var " + item + ": " + value + ") {" + element + indent + "}";
+        }
 
-            if(bag.fields.size() > 0) {
-                for (var field : bag.fields) {
-                    if(serializer_enabled) {
-                        pw.println("\t" + field.str_access + " Optional<" + field.str_type_annotations + "> " + field.str_name + ";");
-                    } else {
-                        pw.println("\t" + field.str_access + " " + field.str_type_annotations + " " + field.str_name + ";");
-                    }
-                }
+        var element = asTypeElement(type);
 
-                pw.print("\n");
-            }
+        if(element == null) {
+            return null;
+        }
 
-            pw.println("\tpublic " + bag.new_name + "() {");
+        var scalar = getBinaryScalarWrite(element, value);
 
-            if(bag.clazz instanceof TypeElement) {
-                pw.println("\t\tsuper();\n");
-            }
+        if(scalar != null) {
+            return indent + scalar + ";";
+        }
 
-            for(var field: bag.fields) {
-                var constant = field.base.getConstantValue();
+        if(element.getKind() == ElementKind.ENUM) {
+            schema.append(";").append(element.getQualifiedName()).append(APUtils.getEnumConstants(element));
 
-                pw.print("\t\tthis.");
-                pw.print(field.str_name);
-                pw.print(" = ");
-                pw.print((constant == null ? null : (serializer_enabled ? "Optional.ofNullable(" : "") + (constant instanceof String ? "\"" + constant + "\"" : constant) + (serializer_enabled ? ")" : "")));
-                pw.println(";");
-            }
+            return indent + "out.writeInt(" + value + ".ordinal());";
+        }
 
-            pw.println("\t}");
+        var response = element.getAnnotation(ResponseDTO.class);
 
-            for(var constructor: bag.constructors) {
-                pw.print("\n");
-                pw.println(constructor);
-            }
+        if(response != null) {
+            return response.binary() ? indent + value + ".writeTo(out);" : null;
+        }
 
-            for(var field: bag.fields) {
-                if(serializer_enabled) {
-                    pw.print("\n");
-                    pw.println("\tpublic Boolean has" + APUtils.camelCase(field.str_name) + "Field() {");
-                    pw.println("\t\treturn this." + field.str_name + " != null ? true : false;");
-                    pw.println("\t}");
-                }
+        var arguments = ((DeclaredType) type).getTypeArguments();
+        var qualified = element.getQualifiedName().toString();
 
-                pw.print("\n");
-                pw.println("\tpublic " + field.str_type_annotations + " get" + APUtils.camelCase(field.str_name) + "(" + field.str_type + " def) {");
+        if(BINARY_COLLECTIONS.contains(qualified) && arguments.size() == 1) {
+            var item_write = getNullableBinaryWrite(arguments.get(0), item, indent + "\t", depth + 1, imports, schema);
 
-                if(serializer_enabled) {
-                    pw.println("\t\treturn this." + field.str_name + " != null ? this." + field.str_name + ".orElse(def) : def;");
-                } else {
-                    pw.println("\t\treturn this." + field.str_name + " != null ? this." + field.str_name + " : def;");
-                }
+            if(item_write == null) {
+                return null;
+            }
 
-                pw.println("\t}");
-                pw.print("\n");
-                pw.println("\tpublic " + field.str_type_annotations + " get" + APUtils.camelCase(field.str_name) + "() {");
-                pw.println("\t\treturn this.get" + APUtils.camelCase(field.str_name) + "(null);");
-                pw.println("\t}");
-                pw.print("\n");
+            return indent + "out.writeInt(" + value + ".size());" +
+                indent + "for(var " + item + ": " + value + ") {" + item_write + indent + "}";
+        }
 
-                if(!field.base.getModifiers().contains(Modifier.FINAL)) {
-                    pw.println("\tpublic void clear" + APUtils.camelCase(field.str_name) + "() {");
-                    pw.println("\t\tthis." + field.str_name + " = null;");
-                    pw.println("\t}");
-                    pw.print("\n");
+        if(BINARY_MAPS.contains(qualified) && arguments.size() == 2) {
+            var key = "key$" + depth;
+            var entry = "entry$" + depth;
+            var key_write = getNullableBinaryWrite(arguments.get(0), key, indent + "\t", depth + 1, imports, schema);
+            var item_write = getNullableBinaryWrite(arguments.get(1), item, indent + "\t", depth + 1, imports, schema);
 
-                    if(serializer_enabled) {
-                        pw.println("\tpublic void set" + APUtils.camelCase(field.str_name) + "(final " + field.str_type + " value) {");
-                        pw.println("\t\tthis." + field.str_name + " = Optional.ofNullable(value);");
-                        pw.println("\t}");
-                    } else {
-                        pw.println("\tpublic void set" + APUtils.camelCase(field.str_name) + "(final " + field.str_type + " value) {");
-                        pw.println("\t\tthis." + field.str_name + " = value;");
-                        pw.println("\t}");
-                    }
-                }
+            if(key_write == null || item_write == null) {
+                return null;
             }
 
-            pw.println("}");
-            pw.flush();
-        } catch (Exception x) {
-            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, x.toString());
+            return indent + "out.writeInt(" + value + ".size());" +
+                indent + "for(var " + entry + ": " + value + ".entrySet()) {" +
+                indent + "\tvar " + key + " = " + entry + ".getKey();" +
+                indent + "\tvar " + item + " = " + entry + ".getValue();" +
+                key_write +
+                item_write +
+                indent + "}";
         }
+
+        return null;
     }
 
-    private void makeDefaultSerializer(DefaultDatasetClassBag bag, SettingsBag settings){
-        try {
-            var f = filter.createSourceFile(bag.pkg.getQualifiedName() + "." + bag.new_name);
+    private String getNullableBinaryWrite(TypeMirror type, String value, String indent, Integer depth, List<String> imports, StringBuilder schema) {
+        var write = getBinaryWrite(type, value, indent + "\t", depth, imports, schema);
 
-            try (var w = f.openWriter()) {
-                var from_name = getNewClassName(bag.clazz.getSimpleName().toString());
-                var pack = bag.pkg.getQualifiedName().toString();
-                var pw = new PrintWriter(w);
+        if(write == null) {
+            return null;
+        }
 
-                pw.println("package " + pack + ";");
-                pw.print("\n");
+        return indent + "out.writeBoolean(" + value + " != null);" +
+            indent + "if(" + value + " != null) {" + write + indent + "}";
+    }
 
-                for(var field: bag.imports.stream().filter(e -> !e.startsWith("java.lang.") && e.contains(".")).distinct().collect(Collectors.toList())) {
-                    pw.println("import " + field + ";");
-                }
+    /**
+     * Чтение значения типа type в уже объявленную переменную target, порядок чтения совпадает с getBinaryWrite
+     */
+    private String getBinaryRead(TypeMirror type, String target, String indent, Integer depth, List<String> imports) {
+        var item = "item$" + depth;
+        var size = "size$" + depth;
+        var index = "i$" + depth;
 
-                pw.println("\n/**");
-                pw.println(" * Сгенерировано автоматически с помощью dto-optional-annotation-preprocessor");
-                pw.println(" * Этот класс используется для сериализации объекта @see {@link " + from_name + "}.");
-                pw.println(" * Реализованно от класса @see {@link " + bag.clazz.getSimpleName() + "}");
-                pw.println(" */");
+        if(type.getKind() == TypeKind.ARRAY) {
+            var component = ((ArrayType) type).getComponentType();
 
-                pw.println("class " + bag.new_name + " extends StdSerializer<" + from_name +"> {");
-                pw.println("\tpublic " + bag.new_name + "() {");
-                pw.println("\t\tsuper(" + from_name + ".class);");
-                pw.println("\t}");
-                pw.print("\n");
-                pw.println("\tpublic " + bag.new_name + "(Class<" + from_name + "> from) {");
-                pw.println("\t\tsuper(from);");
-                pw.println("\t}");
+            //
+            // Массив параметризованного типа создать нельзя
+            //
+            if(component instanceof DeclaredType && ((DeclaredType) component).getTypeArguments().size() > 0) {
+                return null;
+            }
 
-                pw.print("\n");
-                pw.println("\t@Override");
-                pw.println("\tpublic void serialize(" + from_name + " value, JsonGenerator gen, SerializerProvider provider) throws IOException {");
-                pw.println(buildThree(bag.clazz, settings));
-                pw.println("\t}");
+            var component_bag = getGenerics(component);
+            var element = component.getKind().isPrimitive() ?
+                getBinaryRead(component, target + "[" + index + "]", indent + "\t", depth + 1, imports) :
+                getNullableBinaryRead(component, target + "[" + index + "]", indent + "\t", depth + 1, imports);
 
-                pw.println("}");
-                pw.flush();
-            } catch (IOException x) {
-                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, x.toString());
+            if(element == null || component_bag == null) {
+                return null;
             }
-        } catch (IOException x) {
-            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, x.toString());
+
+            imports.addAll(component_bag.getImports());
+
+            return indent + target + " = new " + (component.getKind().isPrimitive() ? component.toString() : component_bag.simpleRoot) + "[in.readInt()];" +
+                indent + "for(var " + index + " = 0; " + index + " < " + target + ".length; " + index + "++) {" + element + indent + "}";
         }
-    }
 
-    private String getNewRequestClassName(String input) {
-        return input.endsWith("DTO") ? input.substring(0, input.length() - 3) + "RequestDTO" : input + "RequestDTO";
-    }
+        var element = asTypeElement(type);
 
-    private String getNewClassName(String input) {
-        return input.endsWith("DTO") ? input.substring(0, input.length() - 3) + "ResponseDTO" : input + "ResponseDTO";
-    }
+        if(element == null) {
+            return null;
+        }
 
-    private String getNewSerializerName(String input) {
-        return getNewClassName(input) + "Serializer";
-    }
+        var scalar = getBinaryScalarRead(element);
 
-    private String buildThree(Element from, SettingsBag settings){
-        var builder = new StringBuilder();
-        var char_trip = "\t\t";
-        var from_fields = ElementFilter.fieldsIn(from.getEnclosedElements()).stream().collect(Collectors.toMap(e -> e.getSimpleName().toString(), e -> e));
+        if(scalar != null) {
+            return indent + target + " = " + scalar + ";";
+        }
 
-        builder.append(char_trip).append("gen.writeStartObject();\n\n");
+        if(element.getKind() == ElementKind.ENUM) {
+            imports.add(element.getQualifiedName().toString());
 
-        for(var field: from_fields.values()) {
-            var getter = APUtils.toGetter(field.getSimpleName().toString());
-            var custom_name = APUtils.convertToCurrentCase(field.getSimpleName().toString(), settings.policy);
-            var build_with_field = buildWithTypeOf(field.asType());
+            return indent + target + " = " + element.getSimpleName() + ".values()[in.readInt()];";
+        }
 
-            builder.append(char_trip).append("if(value.").append("has").append(APUtils.camelCase(field.getSimpleName().toString())).append("Field").append("()) {\n");
-            builder.append(char_trip).append("\tif(value.").append(getter).append("() != null) {\n");
+        var response = element.getAnnotation(ResponseDTO.class);
 
-            if (build_with_field != null) {
-                builder
-                    .append(char_trip)
-                    .append("\t\t")
-                    .append(build_with_field)
-                    .append("(\"")
-                    .append(custom_name)
-                    .append("\", ")
-                    .append("value.")
-                    .append(getter)
-                .append("());\n");
-            } else {
-                builder
-                    .append(char_trip)
-                    .append("\t\t")
-                    .append("provider.defaultSerializeField(\"")
-                    .append(custom_name)
-                    .append("\", ")
-                    .append("value.")
-                    .append(getter)
-                .append("(), gen);\n");
+        if(response != null) {
+            if(!response.binary()) {
+                return null;
             }
 
-            builder
-                .append(char_trip)
-                .append("\t} else {\n")
-                .append(char_trip)
-                .append("\t\tgen.writeNullField(\"")
-                .append(custom_name)
-                .append("\");\n")
-                .append(char_trip)
-                .append("\t}\n")
-                .append(char_trip)
-            .append("}\n\n");
+            var name = getNewClassName(element.getSimpleName().toString());
+
+            imports.add(getNewClassName(element.getQualifiedName().toString()));
+
+            return indent + target + " = new " + name + "();" +
+                indent + target + ".readFrom(in);";
         }
 
-        builder.append(char_trip).append("gen.writeEndObject();");
+        var arguments = ((DeclaredType) type).getTypeArguments();
+        var qualified = element.getQualifiedName().toString();
 
-        return builder.toString();
-    }
+        if(BINARY_COLLECTIONS.contains(qualified) && arguments.size() == 1) {
+            var item_bag = getGenerics(arguments.get(0));
+            var item_read = getNullableBinaryRead(arguments.get(0), item, indent + "\t", depth + 1, imports);
 
-    private String buildWithTypeOf(TypeMirror type) {
-        var el_type = typeUtils.asElement(type);
+            if(item_bag == null || item_read == null) {
+                return null;
+            }
 
-        if(el_type instanceof TypeElement) {
-            var t_el_type = (TypeElement) el_type;
+            var implementation = getCollectionImplementation(qualified);
+            var allocation = implementation.equals("EnumSet") ?
+                "EnumSet.noneOf(" + item_bag.simpleRoot + ".class)" :
+                "new " + implementation + "<>(" + getCollectionCapacity(implementation, size) + ")";
+
+            imports.add("java.util." + implementation);
+            imports.addAll(item_bag.getImports());
+
+            return indent + "var " + size + " = in.readInt();" +
+                indent + target + " = " + allocation + ";" +
+                indent + "for(var " + index + " = 0; " + index + " < " + size + "; " + index + "++) {" +
+                indent + "\t" + item_bag.getRoot(false) + " " + item + " = null;" +
+                item_read +
+                indent + "\t" + target + ".add(" + item + ");" +
+                indent + "}";
+        }
 
-            switch (t_el_type.getQualifiedName().toString()) {
-                case "java.lang.String": return "gen.writeStringField";
-                case "java.lang.Boolean": return "gen.writeBooleanField";
-                case "java.lang.Float":
-                case "java.lang.Short":
-                case "java.lang.Double":
-                case "java.lang.Long":
-                case "java.lang.Integer": return "gen.writeNumberField";
+        if(BINARY_MAPS.contains(qualified) && arguments.size() == 2) {
+            var key = "key$" + depth;
+            var key_bag = getGenerics(arguments.get(0));
+            var item_bag = getGenerics(arguments.get(1));
+            var key_read = getNullableBinaryRead(arguments.get(0), key, indent + "\t", depth + 1, imports);
+            var item_read = getNullableBinaryRead(arguments.get(1), item, indent + "\t", depth + 1, imports);
+
+            if(key_bag == null || item_bag == null || key_read == null || item_read == null) {
+                return null;
             }
+
+            var implementation = switch (qualified) {
+                case "java.util.HashMap" -> "HashMap";
+                case "java.util.TreeMap" -> "TreeMap";
+                case "java.util.EnumMap" -> "EnumMap";
+                default -> "LinkedHashMap";
+            };
+            var allocation = switch (implementation) {
+                case "TreeMap" -> "";
+                case "EnumMap" -> key_bag.simpleRoot + ".class";
+                default -> "(int) (" + size + " / 0.75f) + 1";
+            };
+
+            imports.add("java.util." + implementation);
+            imports.addAll(key_bag.getImports());
+            imports.addAll(item_bag.getImports());
+
+            return indent + "var " + size + " = in.readInt();" +
+                indent + target + " = new " + implementation + "<>(" + allocation + ");" +
+                indent + "for(var " + index + " = 0; " + index + " < " + size + "; " + index + "++) {" +
+                indent + "\t" + key_bag.getRoot(false) + " " + key + " = null;" +
+                indent + "\t" + item_bag.getRoot(false) + " " + item + " = null;" +
+                key_read +
+                item_read +
+                indent + "\t" + target + ".put(" + key + ", " + item + ");" +
+                indent + "}";
         }
 
         return null;
     }
 
+    private String getNullableBinaryRead(TypeMirror type, String target, String indent, Integer depth, List<String> imports) {
+        var read = getBinaryRead(type, target, indent + "\t", depth, imports);
+
+        if(read == null) {
+            return null;
+        }
+
+        return indent + "if(in.readBoolean()) {" + read + indent + "}";
+    }
+
+    private String getBinaryScalarWrite(TypeElement element, String value) {
+        switch (element.getQualifiedName().toString()) {
+            case "java.lang.Boolean": return "out.writeBoolean(" + value + ")";
+            case "java.lang.Byte": return "out.writeByte(" + value + ")";
+            case "java.lang.Short": return "out.writeShort(" + value + ")";
+            case "java.lang.Character": return "out.writeChar(" + value + ")";
+            case "java.lang.Integer": return "out.writeInt(" + value + ")";
+            case "java.lang.Long": return "out.writeLong(" + value + ")";
+            case "java.lang.Float": return "out.writeFloat(" + value + ")";
+            case "java.lang.Double": return "out.writeDouble(" + value + ")";
+            case "java.lang.String": return "BinaryCodec.writeString(out, " + value + ")";
+            case "java.math.BigDecimal": return "BinaryCodec.writeBigDecimal(out, " + value + ")";
+            case "java.math.BigInteger": return "BinaryCodec.writeBigInteger(out, " + value + ")";
+            case "java.util.UUID": return "BinaryCodec.writeUUID(out, " + value + ")";
+            case "java.util.Date": return "BinaryCodec.writeDate(out, " + value + ")";
+            case "java.time.LocalDate": return "BinaryCodec.writeLocalDate(out, " + value + ")";
+            case "java.time.LocalTime": return "BinaryCodec.writeLocalTime(out, " + value + ")";
+            case "java.time.LocalDateTime": return "BinaryCodec.writeLocalDateTime(out, " + value + ")";
+            case "java.time.Instant": return "BinaryCodec.writeInstant(out, " + value + ")";
+            case "java.time.OffsetDateTime": return "BinaryCodec.writeOffsetDateTime(out, " + value + ")";
+            case "java.time.ZonedDateTime": return "BinaryCodec.writeZonedDateTime(out, " + value + ")";
+            default: return null;
+        }
+    }
+
+    private String getBinaryScalarRead(TypeElement element) {
+        switch (element.getQualifiedName().toString()) {
+            case "java.lang.Boolean": return "in.readBoolean()";
+            case "java.lang.Byte": return "in.readByte()";
+            case "java.lang.Short": return "in.readShort()";
+            case "java.lang.Character": return "in.readChar()";
+            case "java.lang.Integer": return "in.readInt()";
+            case "java.lang.Long": return "in.readLong()";
+            case "java.lang.Float": return "in.readFloat()";
+            case "java.lang.Double": return "in.readDouble()";
+            case "java.lang.String": return "BinaryCodec.readString(in)";
+            case "java.math.BigDecimal": return "BinaryCodec.readBigDecimal(in)";
+            case "java.math.BigInteger": return "BinaryCodec.readBigInteger(in)";
+            case "java.util.UUID": return "BinaryCodec.readUUID(in)";
+            case "java.util.Date": return "BinaryCodec.readDate(in)";
+            case "java.time.LocalDate": return "BinaryCodec.readLocalDate(in)";
+            case "java.time.LocalTime": return "BinaryCodec.readLocalTime(in)";
+            case "java.time.LocalDateTime": return "BinaryCodec.readLocalDateTime(in)";
+            case "java.time.Instant": return "BinaryCodec.readInstant(in)";
+            case "java.time.OffsetDateTime": return "BinaryCodec.readOffsetDateTime(in)";
+            case "java.time.ZonedDateTime": return "BinaryCodec.readZonedDateTime(in)";
+            default: return null;
+        }
+    }
+
     private ConstructorBag createConstructorFor(
         TypeElement element,
         HashMap<String, FieldContainer> fields,
         String constructor_name,
         List<String> parent_imports,
         Element clazz,
-        Boolean serializer_enabled
+        Boolean serializer_enabled,
+        Integer max_depth
     ) {
         var bag = new ConstructorBag();
         var builder = new StringBuilder();
@@ -470,12 +1833,34 @@ public class ResponseDTOPreprocessor extends AbstractProcessor {
         var conversion_name = element.getAnnotation(RequestDTO.class) != null ? getNewRequestClassName(simple_name) : simple_name;
         var skip_count = 0;
 
+        //
+        // Конструктор без контекста начинает новую конвертацию, вложенные dto создаются через общий контекст
+        //
+        builder.append("\tpublic ")
+            .append(constructor_name)
+            .append("(")
+            .append(conversion_name)
+            .append(" from) {\n\t\tthis(from, new ConversionContext(")
+            .append(max_depth == Integer.MAX_VALUE ? "" : max_depth)
+            .append(").begin(from, ")
+            .append(constructor_name)
+        .append(".class));\n\t}\n\n");
+
         builder.append("\tpublic ")
             .append(constructor_name)
             .append("(")
             .append(conversion_name)
-            .append(" from)")
-        .append(" {\n\t\tthis();\n\n\t\tif(from != null) {");
+            .append(" from, ConversionContext context) {\n\t\tthis();\n\t\tthis.fillFrom(from, context);\n\t}\n\n");
+
+        //
+        // Заполнение вынесено в отдельный метод, чтобы writeAll мог переиспользовать один экземпляр dto
+        //
+        builder.append("\tprivate void fillFrom(")
+            .append(conversion_name)
+            .append(" from, ConversionContext context)")
+        .append(" {\n\t\tif(from != null) {");
+
+        bag.imports.add("io.github.asewhy.project.dto.optional.preprocessor.runtime.ConversionContext");
 
         //
         // Стандартный обработчик конверсии
@@ -543,11 +1928,32 @@ public class ResponseDTOPreprocessor extends AbstractProcessor {
                             }
                         }
                     }
+                } else if(return_type.getKind() == TypeKind.ARRAY) {
+                    var mirror_type = mirror.base.asType();
+                    var statement = mirror_type.getKind() == TypeKind.ARRAY && (getter == null || getter.getParameters().size() == 0) ? getArrayConversion(
+                        ((ArrayType) return_type).getComponentType(),
+                        ((ArrayType) mirror_type).getComponentType(),
+                        mirror,
+                        getter_signature,
+                        skip_null_check ? "\n\t\t\t" : "\n\t\t\t\t",
+                        bag
+                    ) : null;
+
+                    if(statement != null) {
+                        builder
+                            .append(skip_null_check ? "" : "\n\t\t\tif(from.")
+                            .append(skip_null_check ? "" : getter_signature)
+                            .append(skip_null_check ? "" : "() != null) {")
+                            .append(statement)
+                        .append(skip_null_check ? "" : "\n\t\t\t}");
+                    } else {
+                        skip_count++;
+                    }
                 } else if(return_type.getKind() != TypeKind.VOID) {
-                    var return_type_element = typeUtils.asElement(return_type);
+                    var return_type_element = asTypeElement(return_type);
 
                     if (return_type_element instanceof TypeElement) {
-                        var type_return_element = (TypeElement) return_type_element;
+                        var type_return_element = return_type_element;
 
                         if (getter == null || getter.getParameters().size() == 0) {
                             if(type_return_element.getQualifiedName().toString().equals(mirror.root_type)) {
@@ -584,38 +1990,25 @@ public class ResponseDTOPreprocessor extends AbstractProcessor {
                                         var return_declared_type_element_str = return_declared_type_element.getQualifiedName().toString();
 
                                         if(mirror_declared_type_element_str.equals(return_declared_type_element_str) && return_declared_type_element.getAnnotation(RequestDTO.class) == null) {
-                                            switch (type_return_element.getQualifiedName().toString()) {
-                                                case "java.util.LinkedHashSet", "java.util.HashSet", "java.util.EnumSet", "java.util.TreeSet", "java.util.Set" -> builder
-                                                        .append(skip_null_check ? "" : "\n\t\t\tif(from.")
-                                                        .append(skip_null_check ? "" : APUtils.toGetter(mirror.str_name))
-                                                        .append(skip_null_check ? "" : "() != null) {")
-                                                        .append("\n\t\t\t")
-                                                        .append(skip_null_check ? "" : "\t")
-                                                        .append("this.")
-                                                        .append(APUtils.toSetter(mirror.str_name))
-                                                        .append("((")
-                                                        .append(mirror.str_type)
-                                                        .append(") from.")
-                                                        .append(getter_signature)
-                                                        .append("().clone());")
-                                                    .append(skip_null_check ? "" : "\n\t\t\t}");
-                                                case "java.util.LinkedList", "java.util.ArrayList", "java.util.List" -> {
-                                                    builder
-                                                        .append(skip_null_check ? "" : "\n\t\t\tif(from.")
-                                                        .append(skip_null_check ? "" : APUtils.toGetter(mirror.str_name))
-                                                        .append(skip_null_check ? "" : "() != null) {")
-                                                        .append("\n\t\t\t")
-                                                        .append(skip_null_check ? "" : "\t")
-                                                        .append("this.")
-                                                        .append(APUtils.toSetter(mirror.str_name))
-                                                        .append("(new ArrayList<>(from.")
-                                                        .append(getter_signature)
-                                                        .append("()));")
-                                                    .append(skip_null_check ? "" : "\n\t\t\t}");
-
-                                                    bag.imports.add("java.util.ArrayList");
-                                                }
-                                            }
+                                            var implementation = getCollectionImplementation(type_return_element.getQualifiedName().toString());
+
+                                            //
+                                            // Копирующие конструкторы сами выделяют нужный размер, EnumSet копируется битовой маской
+                                            //
+                                            builder
+                                                .append(skip_null_check ? "" : "\n\t\t\tif(from.")
+                                                .append(skip_null_check ? "" : getter_signature)
+                                                .append(skip_null_check ? "" : "() != null) {")
+                                                .append("\n\t\t\t")
+                                                .append(skip_null_check ? "" : "\t")
+                                                .append("this.")
+                                                .append(APUtils.toSetter(mirror.str_name))
+                                                .append(implementation.equals("EnumSet") ? "(EnumSet.copyOf(from." : "(new " + implementation + "<>(from.")
+                                                .append(getter_signature)
+                                                .append("()));")
+                                            .append(skip_null_check ? "" : "\n\t\t\t}");
+
+                                            bag.imports.add("java.util." + implementation);
                                         } else {
                                             //
                                             // Тут примерно то-же что и ниже
@@ -654,32 +2047,37 @@ public class ResponseDTOPreprocessor extends AbstractProcessor {
                                                         .anyMatch(e -> e.toString().equals(return_declared_type_element_str))
                                             ) {
                                                 var name = mirror_declared_type_element.getSimpleName().toString();
+                                                var element_name = response_dto_annotation != null ? getNewClassName(name) : name;
+                                                var implementation = getCollectionImplementation(type_return_element.getQualifiedName().toString());
+                                                var indent = skip_null_check ? "\n\t\t\t" : "\n\t\t\t\t";
+                                                var source = "source$" + mirror.str_name;
+                                                var result = "result$" + mirror.str_name;
+
+                                                //
+                                                // EnumSet не может содержать dto, поэтому результат собирается в LinkedHashSet
+                                                //
+                                                if(implementation.equals("EnumSet")) {
+                                                    implementation = "LinkedHashSet";
+                                                }
 
+                                                //
+                                                // Обычный цикл в коллекцию заранее известного размера, без промежуточного stream и перевыделений
+                                                //
                                                 builder
                                                     .append(skip_null_check ? "" : "\n\t\t\tif(from.")
-                                                    .append(skip_null_check ? "" : APUtils.toGetter(mirror.str_name))
+                                                    .append(skip_null_check ? "" : getter_signature)
                                                     .append(skip_null_check ? "" : "() != null) {")
-                                                    .append("\n\t\t\t")
-                                                    .append(skip_null_check ? "" : "\t")
-                                                    .append("this.")
-                                                    .append(APUtils.toSetter(mirror.str_name))
-                                                    .append("(from.")
-                                                    .append(APUtils.toGetter(mirror.str_name))
-                                                    .append("().stream().map(")
-                                                    .append(response_dto_annotation != null ? getNewClassName(name) : name)
-                                                    .append("::new")
-                                                .append(").collect(Collectors.");
-
-                                                switch (type_return_element.getQualifiedName().toString()) {
-                                                    case "java.util.LinkedHashSet", "java.util.HashSet", "java.util.EnumSet", "java.util.TreeSet", "java.util.Set" -> builder.append("toSet");
-                                                    case "java.util.LinkedList", "java.util.ArrayList", "java.util.List" -> builder.append("toList");
-                                                }
-
-                                                builder.append("()));");
-                                                builder.append(skip_null_check ? "" : "\n\t\t\t}");
+                                                    .append(indent).append("var ").append(source).append(" = from.").append(getter_signature).append("();")
+                                                    .append(indent).append("var ").append(result).append(" = new ").append(implementation).append("<").append(element_name).append(">(")
+                                                    .append(getCollectionCapacity(implementation, source + ".size()")).append(");\n")
+                                                    .append(indent).append("for(var current: ").append(source).append(") {")
+                                                    .append(getAddStatement(indent + "\t", result + ".add(%s);", getConstructCall(element_name, response_dto_annotation != null, "current")))
+                                                    .append(indent).append("}\n")
+                                                    .append(indent).append("this.").append(APUtils.toSetter(mirror.str_name)).append("(").append(result).append(");")
+                                                .append(skip_null_check ? "" : "\n\t\t\t}");
 
                                                 bag.imports.add(mirror_declared_type_element.getQualifiedName().toString());
-                                                bag.imports.add("java.util.stream.Collectors");
+                                                bag.imports.add("java.util." + implementation);
                                             } else {
                                                 skip_count++;
                                             }
@@ -687,6 +2085,37 @@ public class ResponseDTOPreprocessor extends AbstractProcessor {
                                     } else {
                                         skip_count++;
                                     }
+                                } else if(
+                                    mirror_type instanceof DeclaredType &&
+                                    return_type instanceof DeclaredType &&
+                                    List.of(
+                                        "java.util.LinkedHashMap",
+                                        "java.util.HashMap",
+                                        "java.util.TreeMap",
+                                        "java.util.EnumMap",
+                                        "java.util.Map"
+                                    ).contains(type_return_element.getQualifiedName().toString())
+                                ) {
+                                    var statement = getMapConversion(
+                                        (DeclaredType) return_type,
+                                        (DeclaredType) mirror_type,
+                                        type_return_element.getQualifiedName().toString(),
+                                        mirror,
+                                        getter_signature,
+                                        skip_null_check ? "\n\t\t\t" : "\n\t\t\t\t",
+                                        bag
+                                    );
+
+                                    if(statement != null) {
+                                        builder
+                                            .append(skip_null_check ? "" : "\n\t\t\tif(from.")
+                                            .append(skip_null_check ? "" : getter_signature)
+                                            .append(skip_null_check ? "" : "() != null) {")
+                                            .append(statement)
+                                        .append(skip_null_check ? "" : "\n\t\t\t}");
+                                    } else {
+                                        skip_count++;
+                                    }
                                 } else {
                                     builder.append("\n\t\t\tthis.").append(APUtils.toSetter(mirror.str_name)).append("(from.").append(getter_signature).append("());");
                                 }
@@ -739,11 +2168,9 @@ public class ResponseDTOPreprocessor extends AbstractProcessor {
                                             .append(skip_null_check ? "" : "\t")
                                             .append("this.")
                                             .append(APUtils.toSetter(mirror.str_name))
-                                            .append("(new ")
-                                            .append(request_dto_annotation != null ? getNewClassName(name) : name)
-                                            .append("(from.")
-                                            .append(getter_signature)
-                                            .append("()));")
+                                            .append("(")
+                                            .append(getConstructCall(request_dto_annotation != null ? getNewClassName(name) : name, request_dto_annotation != null, "from." + getter_signature + "()"))
+                                            .append(");")
                                         .append(skip_null_check ? "" : "\n\t\t\t}");
 
                                         bag.imports.add(t_mirror_type.getQualifiedName().toString());
@@ -794,8 +2221,10 @@ public class ResponseDTOPreprocessor extends AbstractProcessor {
             }
         }
 
+        stats.skipped(clazz, skip_count);
+
         if(skip_count > 0) {
-            System.out.println("[WARN] When creating the converter " + constructor_name + " -> " + conversion_name + " " + skip_count + " fields were omitted");
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "When creating the converter " + constructor_name + " -> " + conversion_name + " " + skip_count + " fields were omitted", clazz);
         }
 
         builder.append("\n\t\t}\n\t}");
@@ -807,10 +2236,35 @@ public class ResponseDTOPreprocessor extends AbstractProcessor {
     }
 
     private GenericBag getGenerics(TypeMirror from) {
-        var root = typeUtils.asElement(from);
+        //
+        // Массивы описываются типом элемента, массивы примитивов остаются примитивными
+        //
+        if(from.getKind() == TypeKind.ARRAY) {
+            var component = ((ArrayType) from).getComponentType();
+            var bag = new GenericBag();
+
+            if(component.getKind().isPrimitive()) {
+                bag.simpleRoot = component.toString() + "[]";
+                bag.fullRoot = component.toString() + "[]";
+            } else {
+                var component_bag = getGenerics(component);
+
+                if(component_bag == null) {
+                    return null;
+                }
+
+                bag.simpleRoot = component_bag.getRoot(false) + "[]";
+                bag.fullRoot = component_bag.fullRoot + "[]";
+                bag.provided_imports.addAll(component_bag.getImports());
+            }
+
+            return bag;
+        }
+
+        var root = asTypeElement(from);
 
         if(root instanceof TypeElement) {
-            var type = (TypeElement) root;
+            var type = root;
             var qualified = type.getQualifiedName().toString();
             var type_annotation = type.getAnnotation(ResponseDTO.class);
             var bag = new GenericBag();
@@ -6,8 +6,11 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * Эта аннотация позволяет указать формат даты которая будет предоставлена запросом. Эта аннотация будет разобрана только
- * RequestDTO препроцессором, ResponseDTO препроцессор будет игнорировать эту аннотацию.
+ * Эта аннотация позволяет указать формат даты которая будет предоставлена запросом. RequestDTO препроцессор разбирает
+ * дату по этому формату, а сериализатор ResponseDTO записывает дату в этом-же формате.
+ *
+ * Поддерживаются поля типов java.util.Date, LocalDate, LocalDateTime, OffsetDateTime и Instant. Форматтер создается
+ * один раз на каждый шаблон. Instant без часового пояса в шаблоне разбирается и записывается в UTC.
  *
  * Пример использования:
  *
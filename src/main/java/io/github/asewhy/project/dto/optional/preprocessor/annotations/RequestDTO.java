@@ -1,6 +1,7 @@
 package io.github.asewhy.project.dto.optional.preprocessor.annotations;
 
 import io.github.asewhy.project.dto.optional.preprocessor.enums.FieldPolicy;
+import io.github.asewhy.project.dto.optional.preprocessor.enums.PresencePolicy;
 
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -10,5 +11,13 @@ import java.lang.annotation.Target;
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.SOURCE)
 public @interface RequestDTO {
+    boolean deserializer() default true;
+
     FieldPolicy policy() default FieldPolicy.SnakeCase;
+
+    /**
+     * Как хранится признак наличия поля в запросе. Optional - каждое поле обернуто в Optional, Bitmask - поле хранится как
+     * есть, а признак наличия в битовой маске long, без аллокаций на каждое поле.
+     */
+    PresencePolicy presence() default PresencePolicy.Optional;
 }
@@ -1,18 +1,55 @@
 package io.github.asewhy.project.dto.optional.preprocessor.annotations;
 
 import io.github.asewhy.project.dto.optional.preprocessor.enums.FieldPolicy;
+import io.github.asewhy.project.dto.optional.preprocessor.enums.InclusionPolicy;
+import io.github.asewhy.project.dto.optional.preprocessor.enums.PresencePolicy;
 
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Сохраняется в байткоде, чтобы инкрементальная сборка видела зависимость dto от классов из value() и пересобирала
+ * dto при их изменении.
+ */
 @Target(ElementType.TYPE)
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.CLASS)
 public @interface ResponseDTO {
     Class<?>[] value() default {  };
 
     boolean serializer() default true;
 
     FieldPolicy policy() default FieldPolicy.SnakeCase;
+
+    /**
+     * Как хранится признак наличия поля, учитывается только вместе с serializer = true. Bitmask - поле хранится как есть,
+     * а признак наличия в битовой маске long, вместо обертки Optional на каждое поле.
+     */
+    PresencePolicy presence() default PresencePolicy.Optional;
+
+    /**
+     * Какие значения попадают в ответ. WriteNulls - пишется null, OmitNulls - поле с null пропускается, OmitEmpty - так же
+     * пропускаются пустые строки, коллекции, карты и массивы. Проверки выбираются по типу поля на этапе компиляции.
+     */
+    InclusionPolicy inclusion() default InclusionPolicy.WriteNulls;
+
+    /**
+     * Максимальная вложенность response dto при конвертации из этого класса. Вложенные dto глубже этого уровня
+     * не создаются и остаются null.
+     */
+    int maxDepth() default Integer.MAX_VALUE;
+
+    /**
+     * Дополнительно создать представление SomeClassResponseView, которое оборачивает исходный объект без копирования
+     * полей. Его сериализатор читает геттеры исходного объекта в момент записи, учитывается только вместе с serializer = true.
+     */
+    boolean view() default false;
+
+    /**
+     * Создать бинарный кодек writeTo(DataOutput)/readFrom(DataInput) и реализацию Externalizable, например для
+     * репликации dto через кэш. Формат привязан к хэшу схемы и читается только той же версией dto. Вложенные response dto
+     * тоже должны быть объявлены с binary = true.
+     */
+    boolean binary() default false;
 }
@@ -0,0 +1,7 @@
+package io.github.asewhy.project.dto.optional.preprocessor.enums;
+
+public enum InclusionPolicy {
+    WriteNulls,
+    OmitNulls,
+    OmitEmpty
+}
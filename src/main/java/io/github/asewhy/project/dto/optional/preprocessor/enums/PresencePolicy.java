@@ -0,0 +1,6 @@
+package io.github.asewhy.project.dto.optional.preprocessor.enums;
+
+public enum PresencePolicy {
+    Optional,
+    Bitmask
+}
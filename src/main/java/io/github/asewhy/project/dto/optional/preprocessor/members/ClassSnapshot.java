@@ -0,0 +1,37 @@
+package io.github.asewhy.project.dto.optional.preprocessor.members;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Неизменяемый снимок {@link DefaultDatasetClassBag} без ссылок на модель компилятора, по нему генератор в
+ * {@link io.github.asewhy.project.dto.optional.preprocessor.utils.SourceQueue} собирает текст файла. Импорты уже
+ * отфильтрованы и без повторов.
+ */
+public final class ClassSnapshot {
+    public final String pkg;
+    public final String new_name;
+    public final String simple_name;
+    public final List<String> imports;
+    public final List<FieldSnapshot> fields;
+    public final List<String> constructors;
+    public final List<String> interfaces;
+
+    private ClassSnapshot(DefaultDatasetClassBag bag) {
+        this.pkg = bag.pkg.getQualifiedName().toString();
+        this.new_name = bag.new_name;
+        this.simple_name = bag.clazz.getSimpleName().toString();
+        this.imports = bag.imports.stream().filter(e -> !e.startsWith("java.lang.") && e.contains(".")).distinct().collect(Collectors.toUnmodifiableList());
+        this.fields = bag.fields.stream().map(FieldSnapshot::of).collect(Collectors.toUnmodifiableList());
+        this.constructors = List.copyOf(bag.constructors);
+        this.interfaces = List.copyOf(bag.interfaces);
+    }
+
+    public static ClassSnapshot of(DefaultDatasetClassBag bag) {
+        return new ClassSnapshot(bag);
+    }
+
+    public String getQualifiedName() {
+        return pkg + "." + new_name;
+    }
+}
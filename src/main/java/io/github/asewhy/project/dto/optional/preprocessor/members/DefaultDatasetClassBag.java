@@ -13,4 +13,5 @@ public class DefaultDatasetClassBag {
     public Element clazz;
     public List<FieldContainer> fields = new ArrayList<>();
     public List<String> constructors = new ArrayList<>();
+    public List<String> interfaces = new ArrayList<>();
 }
@@ -9,5 +9,6 @@ public class FieldContainer {
     public String str_access;
     public String annotations;
     public String root_type;
+    public Integer ordinal;
     public VariableElement base;
 }
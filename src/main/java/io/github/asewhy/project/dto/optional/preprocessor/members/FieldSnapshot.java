@@ -0,0 +1,33 @@
+package io.github.asewhy.project.dto.optional.preprocessor.members;
+
+import javax.lang.model.element.Modifier;
+
+/**
+ * Неизменяемый снимок {@link FieldContainer} без ссылок на модель компилятора. Константа уже записана как java
+ * литерал.
+ */
+public final class FieldSnapshot {
+    public final String str_name;
+    public final String str_type;
+    public final String str_type_annotations;
+    public final String str_access;
+    public final Integer ordinal;
+    public final String constant;
+    public final Boolean is_final;
+
+    private FieldSnapshot(FieldContainer field) {
+        var constant = field.base.getConstantValue();
+
+        this.str_name = field.str_name;
+        this.str_type = field.str_type;
+        this.str_type_annotations = field.str_type_annotations;
+        this.str_access = field.str_access;
+        this.ordinal = field.ordinal;
+        this.constant = constant == null ? null : constant instanceof String ? "\"" + constant + "\"" : constant.toString();
+        this.is_final = field.base.getModifiers().contains(Modifier.FINAL);
+    }
+
+    public static FieldSnapshot of(FieldContainer field) {
+        return new FieldSnapshot(field);
+    }
+}
@@ -1,7 +1,11 @@
 package io.github.asewhy.project.dto.optional.preprocessor.members;
 
 import io.github.asewhy.project.dto.optional.preprocessor.enums.FieldPolicy;
+import io.github.asewhy.project.dto.optional.preprocessor.enums.InclusionPolicy;
+import io.github.asewhy.project.dto.optional.preprocessor.enums.PresencePolicy;
 
 public class SettingsBag {
     public FieldPolicy policy;
+    public PresencePolicy presence;
+    public InclusionPolicy inclusion;
 }
@@ -5,17 +5,23 @@ import io.github.asewhy.project.dto.optional.preprocessor.members.FieldContainer
 import io.github.asewhy.project.dto.optional.preprocessor.processors.base.BasePreprocessor;
 
 import javax.lang.model.element.Element;
-import java.io.PrintWriter;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.util.ElementFilter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class DateFormatPreprocessor extends BasePreprocessor<DateFormat> {
-    public DateFormatPreprocessor(PrintWriter writer) {
-        super(writer, DateFormat.class);
+    private static final String DEFAULT_PATTERN = "yyyy-MM-dd'T'HH:mm:ssZ";
+
+    public DateFormatPreprocessor() {
+        super(DateFormat.class);
     }
 
     @Override
     protected String processResult() {
-        return "value != null ? new SimpleDateFormat(\"" + (this.annotation.value().isEmpty() ? "yyyy-MM-dd'T'HH:mm:ssZ" : this.annotation.value()) + "\").parse(value) : null";
+        return "value != null ? " + getParseExpression(this.current, "value") + " : null";
     }
 
     @Override
@@ -25,22 +31,34 @@ public class DateFormatPreprocessor extends BasePreprocessor<DateFormat> {
 
     @Override
     protected List<String> getSetterExceptions() {
-        return List.of("ParseException");
+        return isLegacy(this.current) ? List.of("ParseException") : List.of("DateTimeParseException");
     }
 
     @Override
     public List<String> getProvidedImports(Element field) {
         if(field.getAnnotation(this.annotation_type) != null) {
-            return List.of(
-                "java.text.ParseException",
-                "java.text.SimpleDateFormat",
-                "java.util.Date"
-            );
+            var imports = new ArrayList<>(getFormatterImports(field));
+
+            if(isLegacy(field)) {
+                imports.add("java.text.ParseException");
+                imports.add("java.util.Date");
+            } else {
+                imports.add("java.time.format.DateTimeParseException");
+            }
+
+            return imports;
         } else {
             return null;
         }
     }
 
+    @Override
+    public List<String> getProvidedDeclarations(Element field) {
+        var declaration = field.getAnnotation(this.annotation_type) != null ? getFormatterDeclaration(field) : null;
+
+        return declaration != null ? List.of(declaration) : List.of();
+    }
+
     @Override
     public Boolean isTargetAnnotated(Element field) {
         return field.getAnnotation(this.annotation_type) != null;
@@ -50,4 +68,129 @@ public class DateFormatPreprocessor extends BasePreprocessor<DateFormat> {
     public String getSetterType() {
         return "java.lang.String";
     }
+
+    /**
+     * Полное имя типа поля, null если это не объявленный тип
+     */
+    public static String getTargetType(Element field) {
+        var type = field.asType();
+
+        if(type instanceof DeclaredType) {
+            return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        }
+
+        return null;
+    }
+
+    /**
+     * java.util.Date разбирается через SimpleDateFormat, т.к. буквы шаблона у него отличаются от DateTimeFormatter
+     */
+    public static Boolean isLegacy(Element field) {
+        var type = getTargetType(field);
+
+        return type == null || !type.startsWith("java.time.");
+    }
+
+    public static List<String> getFormatterImports(Element field) {
+        if(isLegacy(field)) {
+            return List.of("java.text.SimpleDateFormat");
+        }
+
+        if(getPattern(field).isEmpty()) {
+            return List.of();
+        }
+
+        if(isZoneRequired(field)) {
+            return List.of("java.time.format.DateTimeFormatter", "java.time.ZoneOffset");
+        }
+
+        return List.of("java.time.format.DateTimeFormatter");
+    }
+
+    /**
+     * Объявление статического форматтера для класса, один на каждый шаблон. null если для поля хватает ISO формата
+     */
+    public static String getFormatterDeclaration(Element field) {
+        var pattern = escape(getPattern(field));
+
+        if(isLegacy(field)) {
+            return "private static final ThreadLocal<SimpleDateFormat> " + getFormatterName(field) + " = ThreadLocal.withInitial(() -> new SimpleDateFormat(\"" + (pattern.isEmpty() ? DEFAULT_PATTERN : pattern) + "\"));";
+        }
+
+        if(pattern.isEmpty()) {
+            return null;
+        }
+
+        if(isZoneRequired(field)) {
+            return "private static final DateTimeFormatter " + getFormatterName(field) + " = DateTimeFormatter.ofPattern(\"" + pattern + "\").withZone(ZoneOffset.UTC);";
+        }
+
+        return "private static final DateTimeFormatter " + getFormatterName(field) + " = DateTimeFormatter.ofPattern(\"" + pattern + "\");";
+    }
+
+    public static String getParseExpression(Element field, String value) {
+        var type = getTargetType(field);
+        var simple = type != null ? type.substring(type.lastIndexOf('.') + 1) : null;
+
+        if(isLegacy(field)) {
+            return getFormatterName(field) + ".get().parse(" + value + ")";
+        }
+
+        if(getPattern(field).isEmpty()) {
+            return simple + ".parse(" + value + ")";
+        }
+
+        return getFormatterName(field) + ".parse(" + value + ", " + simple + "::from)";
+    }
+
+    /**
+     * Выражение, которое форматирует значение в строку. null если для поля хватает ISO формата
+     */
+    public static String getFormatExpression(Element field, String value) {
+        if(isLegacy(field)) {
+            return getFormatterName(field) + ".get().format(" + value + ")";
+        }
+
+        if(getPattern(field).isEmpty()) {
+            return null;
+        }
+
+        return getFormatterName(field) + ".format(" + value + ")";
+    }
+
+    /**
+     * Форматтеры нумеруются по порядку различных шаблонов в классе, имя от hashCode шаблона могло совпасть у двух
+     * разных шаблонов
+     */
+    private static String getFormatterName(Element field) {
+        var prefix = getFormatterPrefix(field);
+        var patterns = ElementFilter.fieldsIn(field.getEnclosingElement().getEnclosedElements()).stream()
+            .filter(e -> e.getAnnotation(DateFormat.class) != null && getFormatterPrefix(e).equals(prefix))
+            .map(DateFormatPreprocessor::getPattern)
+            .distinct()
+        .collect(Collectors.toList());
+
+        return prefix + patterns.indexOf(getPattern(field));
+    }
+
+    private static String getFormatterPrefix(Element field) {
+        return isLegacy(field) ? "LEGACY_FORMAT_" : isZoneRequired(field) ? "UTC_FORMAT_" : "FORMAT_";
+    }
+
+    /**
+     * Instant не содержит часового пояса, поэтому шаблон без пояса разбирается и форматируется в UTC
+     */
+    private static Boolean isZoneRequired(Element field) {
+        return "java.time.Instant".equals(getTargetType(field));
+    }
+
+    private static String getPattern(Element field) {
+        var annotation = field.getAnnotation(DateFormat.class);
+
+        return annotation != null ? annotation.value() : "";
+    }
+
+    private static String escape(String pattern) {
+        return pattern.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
 }
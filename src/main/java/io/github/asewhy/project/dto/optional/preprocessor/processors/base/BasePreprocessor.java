@@ -1,5 +1,6 @@
 package io.github.asewhy.project.dto.optional.preprocessor.processors.base;
 
+import io.github.asewhy.project.dto.optional.preprocessor.enums.PresencePolicy;
 import io.github.asewhy.project.dto.optional.preprocessor.members.FieldContainer;
 import io.github.asewhy.project.dto.optional.preprocessor.members.SettingsBag;
 import io.github.asewhy.project.dto.optional.preprocessor.utils.APUtils;
@@ -9,27 +10,38 @@ import java.io.PrintWriter;
 import java.lang.annotation.Annotation;
 import java.util.List;
 
+/**
+ * Обработчик полей request dto, помеченных аннотацией A. Реализации находятся через ServiceLoader, у них должен быть
+ * публичный конструктор без параметров. Экземпляр переиспользуется для всех полей раунда, writer передается в каждый вызов.
+ */
 public abstract class BasePreprocessor<A extends Annotation> {
-    protected final PrintWriter writer;
     protected final Class<A> annotation_type;
+    protected PrintWriter writer;
     protected A annotation;
+    protected Element current;
 
-    protected BasePreprocessor(PrintWriter writer, Class<A> annotation_type) {
-        this.writer = writer;
+    protected BasePreprocessor(Class<A> annotation_type) {
         this.annotation_type = annotation_type;
     }
 
+    public Class<A> getAnnotationType() {
+        return this.annotation_type;
+    }
+
     protected abstract void processBefore(FieldContainer field, Element target);
     protected abstract String processResult();
     protected abstract List<String> getSetterExceptions();
 
     public Boolean process(
+        PrintWriter writer,
         Element field_element,
         FieldContainer field,
         Boolean serializer_enabled,
         SettingsBag settings
     ) {
+        this.writer = writer;
         annotation = field_element.getAnnotation(annotation_type);
+        current = field_element;
 
         if(annotation != null) {
             var a_throws = getSetterExceptions();
@@ -52,7 +64,14 @@ public abstract class BasePreprocessor<A extends Annotation> {
 
             processBefore(field, field_element);
 
-            if(serializer_enabled) {
+            if(settings.presence == PresencePolicy.Bitmask) {
+                writer.print("\t\tthis.");
+                writer.print(field.str_name);
+                writer.print(" = ");
+                writer.print(result);
+                writer.println(";");
+                writer.println("\t\t" + APUtils.toPresenceMark(field.ordinal));
+            } else if(serializer_enabled) {
                 writer.print("\t\tthis.");
                 writer.print(field.str_name);
                 writer.print(" = Optional.ofNullable(");
@@ -74,7 +93,55 @@ public abstract class BasePreprocessor<A extends Annotation> {
         return false;
     }
 
+    /**
+     * Записывает в тело сгенерированного десериализатора чтение поля. read - выражение, которое читает из парсера значение
+     * типа getSetterType(), target - имя переменной заполняемого объекта
+     */
+    public Boolean processRead(
+        PrintWriter writer,
+        Element field_element,
+        FieldContainer field,
+        String read,
+        String target
+    ) {
+        this.writer = writer;
+        annotation = field_element.getAnnotation(annotation_type);
+        current = field_element;
+
+        if(annotation != null) {
+            writeGuarded(writer, target + "." + APUtils.toSetter(field.str_name) + "(" + read + ");", getSetterExceptions());
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Записывает вызов внутри десериализатора, исключения из списка будут обернуты в JsonMappingException
+     */
+    public static void writeGuarded(PrintWriter writer, String statement, List<String> exceptions) {
+        if(exceptions != null && exceptions.size() > 0) {
+            writer.println("\t\t\t\t\ttry {");
+            writer.println("\t\t\t\t\t\t" + statement);
+            writer.println("\t\t\t\t\t} catch (" + String.join(" | ", exceptions) + " e) {");
+            writer.println("\t\t\t\t\t\tthrow JsonMappingException.from(p, e.getMessage(), e);");
+            writer.println("\t\t\t\t\t}");
+        } else {
+            writer.println("\t\t\t\t\t" + statement);
+        }
+    }
+
     public abstract List<String> getProvidedImports(Element field);
+
+    /**
+     * Объявления уровня класса (например статические константы), которые нужны сгенерированному сеттеру. Одинаковые
+     * объявления от разных полей будут записаны один раз
+     */
+    public List<String> getProvidedDeclarations(Element field) {
+        return List.of();
+    }
+
     public abstract Boolean isTargetAnnotated(Element field);
     public abstract String getSetterType();
 }
@@ -0,0 +1,53 @@
+package io.github.asewhy.project.dto.optional.preprocessor.processors.base;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Обработчики полей, найденные через ServiceLoader (META-INF/services/...BasePreprocessor). Свой обработчик можно
+ * добавить, положив его вместе с файлом сервиса в classpath процессора. Экземпляры создаются один раз на раунд и
+ * индексируются по обрабатываемой аннотации, поэтому поле проходит только через обработчики своих аннотаций.
+ */
+public class PreprocessorRegistry {
+    private final Map<String, List<BasePreprocessor<?>>> by_annotation;
+
+    public PreprocessorRegistry(ClassLoader loader) {
+        this.by_annotation = new HashMap<>();
+
+        //
+        // Литерал класса не бывает параметризованным, поэтому сам загрузчик сырой, а элементы сразу читаются как BasePreprocessor<?>
+        //
+        @SuppressWarnings("rawtypes")
+        ServiceLoader<BasePreprocessor> services = ServiceLoader.load(BasePreprocessor.class, loader);
+
+        for(BasePreprocessor<?> processor: services) {
+            this.by_annotation.computeIfAbsent(processor.getAnnotationType().getCanonicalName(), e -> new ArrayList<>()).add(processor);
+        }
+    }
+
+    /**
+     * Обработчики аннотаций поля в порядке объявления аннотаций
+     */
+    public List<BasePreprocessor<?>> getFor(Element field) {
+        List<BasePreprocessor<?>> result = null;
+
+        for(var mirror: field.getAnnotationMirrors()) {
+            var found = this.by_annotation.get(((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString());
+
+            if(found != null) {
+                if(result == null) {
+                    result = new ArrayList<>();
+                }
+
+                result.addAll(found);
+            }
+        }
+
+        return result != null ? result : List.of();
+    }
+}
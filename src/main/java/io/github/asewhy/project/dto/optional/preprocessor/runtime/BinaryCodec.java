@@ -0,0 +1,148 @@
+package io.github.asewhy.project.dto.optional.preprocessor.runtime;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Запись и чтение значений, для которых у DataOutput нет своего метода, используется сгенерированными методами
+ * writeTo/readFrom. Строки пишутся длиной и байтами UTF-8, поэтому не ограничены 64кб как у writeUTF.
+ */
+public final class BinaryCodec {
+    private BinaryCodec() {
+
+    }
+
+    /**
+     * Проверяет хэш схемы, записанный перед данными. Хэш считается при генерации по именам и типам полей, поэтому
+     * данные, записанные другой версией dto, не будут прочитаны молча.
+     */
+    public static void checkSchema(DataInput in, long schema, Class<?> type) throws IOException {
+        var actual = in.readLong();
+
+        if(actual != schema) {
+            throw new InvalidClassException(type.getName(), "binary schema mismatch, expected " + Long.toHexString(schema) + " but was " + Long.toHexString(actual));
+        }
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        var bytes = new byte[in.readInt()];
+
+        in.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeBigInteger(DataOutput out, BigInteger value) throws IOException {
+        var bytes = value.toByteArray();
+
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static BigInteger readBigInteger(DataInput in) throws IOException {
+        var bytes = new byte[in.readInt()];
+
+        in.readFully(bytes);
+
+        return new BigInteger(bytes);
+    }
+
+    public static void writeBigDecimal(DataOutput out, BigDecimal value) throws IOException {
+        out.writeInt(value.scale());
+        writeBigInteger(out, value.unscaledValue());
+    }
+
+    public static BigDecimal readBigDecimal(DataInput in) throws IOException {
+        var scale = in.readInt();
+
+        return new BigDecimal(readBigInteger(in), scale);
+    }
+
+    public static void writeUUID(DataOutput out, UUID value) throws IOException {
+        out.writeLong(value.getMostSignificantBits());
+        out.writeLong(value.getLeastSignificantBits());
+    }
+
+    public static UUID readUUID(DataInput in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    public static void writeDate(DataOutput out, Date value) throws IOException {
+        out.writeLong(value.getTime());
+    }
+
+    public static Date readDate(DataInput in) throws IOException {
+        return new Date(in.readLong());
+    }
+
+    public static void writeLocalDate(DataOutput out, LocalDate value) throws IOException {
+        out.writeLong(value.toEpochDay());
+    }
+
+    public static LocalDate readLocalDate(DataInput in) throws IOException {
+        return LocalDate.ofEpochDay(in.readLong());
+    }
+
+    public static void writeLocalTime(DataOutput out, LocalTime value) throws IOException {
+        out.writeLong(value.toNanoOfDay());
+    }
+
+    public static LocalTime readLocalTime(DataInput in) throws IOException {
+        return LocalTime.ofNanoOfDay(in.readLong());
+    }
+
+    public static void writeLocalDateTime(DataOutput out, LocalDateTime value) throws IOException {
+        writeLocalDate(out, value.toLocalDate());
+        writeLocalTime(out, value.toLocalTime());
+    }
+
+    public static LocalDateTime readLocalDateTime(DataInput in) throws IOException {
+        return LocalDateTime.of(readLocalDate(in), readLocalTime(in));
+    }
+
+    public static void writeInstant(DataOutput out, Instant value) throws IOException {
+        out.writeLong(value.getEpochSecond());
+        out.writeInt(value.getNano());
+    }
+
+    public static Instant readInstant(DataInput in) throws IOException {
+        return Instant.ofEpochSecond(in.readLong(), in.readInt());
+    }
+
+    public static void writeOffsetDateTime(DataOutput out, OffsetDateTime value) throws IOException {
+        writeLocalDateTime(out, value.toLocalDateTime());
+        out.writeInt(value.getOffset().getTotalSeconds());
+    }
+
+    public static OffsetDateTime readOffsetDateTime(DataInput in) throws IOException {
+        return OffsetDateTime.of(readLocalDateTime(in), ZoneOffset.ofTotalSeconds(in.readInt()));
+    }
+
+    public static void writeZonedDateTime(DataOutput out, ZonedDateTime value) throws IOException {
+        writeLocalDateTime(out, value.toLocalDateTime());
+        out.writeInt(value.getOffset().getTotalSeconds());
+        writeString(out, value.getZone().getId());
+    }
+
+    public static ZonedDateTime readZonedDateTime(DataInput in) throws IOException {
+        var local = readLocalDateTime(in);
+        var offset = ZoneOffset.ofTotalSeconds(in.readInt());
+
+        return ZonedDateTime.ofLocal(local, ZoneId.of(readString(in)), offset);
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.asewhy.project.dto.optional.preprocessor.runtime;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Пакетная конвертация коллекций, используется сгенерированными методами fromAll. Результат всегда выделяется
+ * один раз под размер исходной коллекции, большие коллекции делятся на части и конвертируются параллельно.
+ */
+public final class BulkConversion {
+    public static final int DEFAULT_THRESHOLD = 8192;
+
+    private BulkConversion() {
+
+    }
+
+    public static <S, T> List<T> convertAll(Collection<? extends S> from, Function<? super S, ? extends T> factory) {
+        if(from == null) {
+            return new ArrayList<>(0);
+        }
+
+        var result = new ArrayList<T>(from.size());
+
+        for(var current: from) {
+            result.add(factory.apply(current));
+        }
+
+        return result;
+    }
+
+    /**
+     * Если размер коллекции не меньше threshold, она делится на части по числу потоков executor и каждая часть
+     * конвертируется в executor, иначе конвертация идет в текущем потоке. Число потоков берется у ForkJoinPool,
+     * для остальных executor - по числу ядер. Результат, как и без распараллеливания, - изменяемый {@link ArrayList}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <S, T> List<T> convertAll(Collection<? extends S> from, Function<? super S, ? extends T> factory, Executor executor, int threshold) {
+        if(from == null || from.size() < Math.max(threshold, 2)) {
+            return convertAll(from, factory);
+        }
+
+        var source = from.toArray();
+        var target = new Object[source.length];
+        var chunks = Math.min(source.length, getParallelism(executor) * 4);
+        var chunk_size = (source.length + chunks - 1) / chunks;
+        var tasks = new ArrayList<CompletableFuture<Void>>(chunks);
+
+        for(var start = 0; start < source.length; start += chunk_size) {
+            var begin = start;
+            var end = Math.min(start + chunk_size, source.length);
+
+            tasks.add(CompletableFuture.runAsync(() -> {
+                for(var i = begin; i < end; i++) {
+                    target[i] = factory.apply((S) source[i]);
+                }
+            }, executor));
+        }
+
+        try {
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+
+        return new ArrayList<>((List<T>) Arrays.asList(target));
+    }
+
+    private static int getParallelism(Executor executor) {
+        if(executor instanceof ForkJoinPool) {
+            return ((ForkJoinPool) executor).getParallelism();
+        }
+
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.asewhy.project.dto.optional.preprocessor.runtime;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Вариант {@link PublicBag} для общего накопления из нескольких потоков. Значения хранятся в {@link ConcurrentHashMap},
+ * null хранится как отдельный маркер, списки создаются атомарно через {@link #getOrCreateList(String)} и
+ * синхронизированы.
+ */
+public class ConcurrentBag extends PublicBag {
+    private static final Object NULL = new Object();
+
+    private final ConcurrentHashMap<String, Object> values = new ConcurrentHashMap<>();
+
+    public ConcurrentBag() {
+
+    }
+
+    public ConcurrentBag(PublicBag from) {
+        var fill = new HashMap<String, Object>();
+
+        from.fill(fill);
+
+        for(var entry: fill.entrySet()) {
+            this.set(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void fill(Map<String, Object> fill) {
+        for(var entry: this.values.entrySet()) {
+            fill.put(entry.getKey(), entry.getValue() != NULL ? entry.getValue() : null);
+        }
+    }
+
+    @Override
+    public PublicBag set(String key, Object value) {
+        this.values.put(key, value != null ? value : NULL); return this;
+    }
+
+    @Override
+    public PublicBag setLong(String key, long value) {
+        return this.set(key, value);
+    }
+
+    @Override
+    public PublicBag setInt(String key, int value) {
+        return this.set(key, value);
+    }
+
+    @Override
+    public PublicBag setDouble(String key, double value) {
+        return this.set(key, value);
+    }
+
+    @Override
+    public PublicBag setBoolean(String key, boolean value) {
+        return this.set(key, value);
+    }
+
+    /**
+     * Атомарно прибавляет delta к числу по ключу и возвращает новое значение.
+     */
+    public long addLong(String key, long delta) {
+        return (Long) this.values.merge(key, delta, (a, b) -> (a instanceof Number ? ((Number) a).longValue() : 0) + (Long) b);
+    }
+
+    @Override
+    public PublicBag remove(String key) {
+        this.values.remove(key); return this;
+    }
+
+    @Override
+    public Boolean has(String key) {
+        return this.values.containsKey(key);
+    }
+
+    @Override
+    public Object get(String key) {
+        var value = this.values.get(key);
+
+        return value != NULL ? value : null;
+    }
+
+    /**
+     * Чтение не меняет сумку: если по ключу лежит не список, возвращается пустой неизменяемый список. Для общего
+     * накопления используется {@link #getOrCreateList(String)}.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getList(String key) {
+        var value = this.values.get(key);
+
+        return value instanceof List ? (List<T>) value : List.of();
+    }
+
+    /**
+     * Атомарно создает синхронизированный список, если ключа нет или по нему лежит null, и возвращает список по ключу.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getOrCreateList(String key) {
+        var value = this.values.compute(key, (k, v) -> v == null || v == NULL ? Collections.synchronizedList(new ArrayList<>()) : v);
+
+        if(value instanceof List) {
+            return (List<T>) value;
+        } else {
+            throw new IllegalStateException("Value of " + key + " is not a list");
+        }
+    }
+}
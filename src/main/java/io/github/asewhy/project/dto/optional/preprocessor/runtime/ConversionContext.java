@@ -0,0 +1,139 @@
+package io.github.asewhy.project.dto.optional.preprocessor.runtime;
+
+import java.util.IdentityHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Контекст конвертации графа объектов в response dto. Передается сгенерированными конструкторами вглубь графа:
+ * для одного и того же исходного объекта dto создается один раз, обратные ссылки на объект, который еще
+ * конвертируется, заменяются на null, а вложенность ограничена maxDepth. Dto, у которого часть графа была отрезана
+ * по глубине, не переиспользуется, иначе результат зависел бы от порядка обхода.
+ */
+public class ConversionContext {
+    private static final Object IN_PROGRESS = new Object();
+
+    private final int maxDepth;
+    private IdentityHashMap<Class<?>, IdentityHashMap<Object, Object>> converted;
+    private int depth;
+    private boolean truncated;
+
+    public ConversionContext() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public ConversionContext(int maxDepth) {
+        this.maxDepth = maxDepth;
+        this.converted = null;
+        this.depth = 0;
+        this.truncated = false;
+    }
+
+    /**
+     * Отмечает корневой объект как конвертируемый, чтобы обратные ссылки на него не порождали новый dto.
+     */
+    public ConversionContext begin(Object source, Class<?> type) {
+        if(source != null) {
+            this.getConverted(type).put(source, IN_PROGRESS);
+        }
+
+        return this;
+    }
+
+    /**
+     * Возвращает dto для source. Уже созданный dto переиспользуется, для цикла и при превышении глубины
+     * возвращается null.
+     */
+    public <S, T> T convert(S source, Class<T> type, BiFunction<S, ConversionContext, T> factory) {
+        if(source == null) {
+            return null;
+        }
+
+        var converted = this.getConverted(type);
+        var existing = converted.get(source);
+
+        if(existing == IN_PROGRESS) {
+            return null;
+        }
+
+        if(existing != null) {
+            return type.cast(existing);
+        }
+
+        if(this.depth >= this.maxDepth) {
+            this.truncated = true;
+            return null;
+        }
+
+        var outer_truncated = this.truncated;
+
+        converted.put(source, IN_PROGRESS);
+
+        this.truncated = false;
+        this.depth++;
+
+        try {
+            var result = factory.apply(source, this);
+
+            //
+            // Отрезанный по глубине dto годится только для этого места графа, более мелкая ссылка построит его заново
+            //
+            if(this.truncated) {
+                converted.remove(source);
+            } else {
+                converted.put(source, result);
+            }
+
+            return result;
+        } catch (Throwable x) {
+            //
+            // Иначе объект остался бы помечен как конвертируемый и все следующие ссылки на него стали бы null
+            //
+            converted.remove(source);
+
+            throw x;
+        } finally {
+            this.truncated |= outer_truncated;
+            this.depth--;
+        }
+    }
+
+    /**
+     * Отмечает source как записываемый сейчас, для сериализаторов представлений, которые пишут объект без создания dto.
+     * Возвращает false для обратной ссылки и при превышении глубины, тогда вместо объекта пишется null. После записи
+     * нужно вызвать {@link #exit}.
+     */
+    public boolean enter(Object source, Class<?> type) {
+        var converted = this.getConverted(type);
+
+        if(converted.get(source) == IN_PROGRESS || this.depth >= this.maxDepth) {
+            return false;
+        }
+
+        converted.put(source, IN_PROGRESS);
+
+        this.depth++;
+
+        return true;
+    }
+
+    public void exit(Object source, Class<?> type) {
+        this.getConverted(type).remove(source);
+        this.depth--;
+    }
+
+    public int getDepth() {
+        return this.depth;
+    }
+
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+
+    private IdentityHashMap<Object, Object> getConverted(Class<?> type) {
+        if(this.converted == null) {
+            this.converted = new IdentityHashMap<>();
+        }
+
+        return this.converted.computeIfAbsent(type, e -> new IdentityHashMap<>());
+    }
+}
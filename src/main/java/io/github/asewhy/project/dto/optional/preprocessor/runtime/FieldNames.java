@@ -0,0 +1,148 @@
+package io.github.asewhy.project.dto.optional.preprocessor.runtime;
+
+import io.github.asewhy.project.dto.optional.preprocessor.enums.FieldPolicy;
+
+import java.util.Locale;
+
+/**
+ * Преобразование имени поля java в имя поля json по {@link FieldPolicy}, тем же кодом пользуется процессор при
+ * генерации. Строка проходится один раз, если имя менять не нужно - возвращается исходная строка без выделения памяти.
+ */
+public final class FieldNames {
+    private FieldNames() {
+
+    }
+
+    public static String convert(String input, FieldPolicy policy) {
+        if(policy == null) {
+            return toSnakeCase(input);
+        }
+
+        //
+        // Исторически LowerSnakeCase дает верхний регистр, а UpperSnakeCase - нижний, от этого зависят имена
+        // полей в уже сгенерированных dto
+        //
+        return switch (policy) {
+            case CamelCase -> toCamelCase(input);
+            case SnakeCase, UpperSnakeCase -> toSnakeCase(input);
+            case LowerSnakeCase -> toUpperSnakeCase(input);
+            case KebabCase, LowerKebabCase -> toKebabCase(input);
+            case UpperKebabCase -> toUpperKebabCase(input);
+            case None -> input;
+        };
+    }
+
+    /**
+     * someField -> some_field, HTTPServer -> http_server
+     */
+    public static String toSnakeCase(String input) {
+        return separate(input, '_', false);
+    }
+
+    /**
+     * someField -> SOME_FIELD
+     */
+    public static String toUpperSnakeCase(String input) {
+        return separate(input, '_', true);
+    }
+
+    /**
+     * someField -> some-field. Граница аббревиатуры отделяется подчеркиванием: HTTPServer -> http_server
+     */
+    public static String toKebabCase(String input) {
+        return separate(input, '-', false);
+    }
+
+    public static String toUpperKebabCase(String input) {
+        return separate(input, '-', true);
+    }
+
+    /**
+     * some_field -> someField, some-field -> someField
+     */
+    public static String toCamelCase(String input) {
+        var length = input.length();
+        StringBuilder builder = null;
+
+        for(var i = 0; i < length; i++) {
+            var current = input.charAt(i);
+
+            if((current == '_' || current == '-') && i + 1 < length && isLower(input.charAt(i + 1))) {
+                if(builder == null) {
+                    builder = new StringBuilder(length).append(input, 0, i);
+                }
+
+                builder.append((char) (input.charAt(++i) - ('a' - 'A')));
+            } else if(builder != null) {
+                builder.append(current);
+            }
+        }
+
+        return builder == null ? input : builder.toString();
+    }
+
+    /**
+     * Разделитель ставится между строчной и заглавной буквой, а в серии заглавных - перед последней заглавной, за
+     * которой идет строчная (HTTPServer -> HTTP_Server), во втором случае это всегда подчеркивание. Буквы вне ASCII
+     * переводятся в нужный регистр всей строкой в конце.
+     */
+    private static String separate(String input, char separator, Boolean upper) {
+        var length = input.length();
+        var unicode = false;
+        StringBuilder builder = null;
+
+        for(var i = 0; i < length; i++) {
+            var current = input.charAt(i);
+            var converted = current;
+            var insert = (char) 0;
+
+            if(isUpper(current)) {
+                if(i > 0 && isLower(input.charAt(i - 1))) {
+                    insert = separator;
+                } else if(i > 0 && i + 1 < length && isUpper(input.charAt(i - 1)) && isLower(input.charAt(i + 1))) {
+                    insert = '_';
+                }
+
+                if(!upper) {
+                    converted = (char) (current + ('a' - 'A'));
+                }
+            } else if(isLower(current)) {
+                if(upper) {
+                    converted = (char) (current - ('a' - 'A'));
+                }
+            } else if(current >= 0x80) {
+                unicode = true;
+            }
+
+            if(builder == null) {
+                if(insert == 0 && converted == current) {
+                    continue;
+                }
+
+                builder = new StringBuilder(length + 8).append(input, 0, i);
+            }
+
+            if(insert != 0) {
+                builder.append(insert);
+            }
+
+            builder.append(converted);
+        }
+
+        var result = builder == null ? input : builder.toString();
+
+        if(unicode) {
+            return upper ? result.toUpperCase(Locale.ROOT) : result.toLowerCase(Locale.ROOT);
+        }
+
+        return result;
+    }
+
+    private static boolean isUpper(char current) {
+        return current >= 'A' && current <= 'Z';
+    }
+
+    private static boolean isLower(char current) {
+        return current >= 'a' && current <= 'z';
+    }
+}
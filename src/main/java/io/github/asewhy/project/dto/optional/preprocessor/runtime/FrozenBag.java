@@ -0,0 +1,223 @@
+package io.github.asewhy.project.dto.optional.preprocessor.runtime;
+
+import java.lang.reflect.Array;
+import java.util.*;
+
+/**
+ * Неизменяемый снимок {@link PublicBag}. Ключи хранятся в отсортированном массиве, значения в параллельном массиве,
+ * оба массива final, поэтому снимок можно передавать между потоками без блокировок и копирования. Значения-массивы
+ * нельзя сделать неизменяемыми, поэтому наружу они отдаются копией.
+ */
+public final class FrozenBag extends PublicBag {
+    private final String[] keys;
+    private final Object[] values;
+
+    FrozenBag(Map<String, Object> from) {
+        var keys = from.keySet().toArray(new String[0]);
+
+        Arrays.sort(keys);
+
+        this.keys = keys;
+        this.values = new Object[keys.length];
+
+        for(var i = 0; i < keys.length; i++) {
+            this.values[i] = freezeValue(from.get(keys[i]));
+        }
+    }
+
+    @Override
+    public void fill(Map<String, Object> fill) {
+        for(var i = 0; i < this.keys.length; i++) {
+            fill.put(this.keys[i], copyOut(this.values[i]));
+        }
+    }
+
+    @Override
+    public Boolean has(String key) {
+        return Arrays.binarySearch(this.keys, key) >= 0;
+    }
+
+    @Override
+    public Object get(String key) {
+        var index = Arrays.binarySearch(this.keys, key);
+
+        return index >= 0 ? copyOut(this.values[index]) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getList(String key) {
+        var value = this.get(key);
+
+        return value instanceof List ? (List<T>) value : List.of();
+    }
+
+    /**
+     * Возвращает копию, снимок не отдает изменяемые списки.
+     */
+    @Override
+    public LongList getLongListView(String key) {
+        var value = this.get(key);
+
+        return value instanceof Collection ? LongList.copyOf((Collection<?>) value) : new LongList(0);
+    }
+
+    /**
+     * Возвращает копию, снимок не отдает изменяемые списки.
+     */
+    @Override
+    public IntList getIntListView(String key) {
+        var value = this.get(key);
+
+        return value instanceof Collection ? IntList.copyOf((Collection<?>) value) : new IntList(0);
+    }
+
+    @Override
+    public LongList toLongList(String key) {
+        throw new UnsupportedOperationException("Bag is frozen");
+    }
+
+    @Override
+    public IntList toIntList(String key) {
+        throw new UnsupportedOperationException("Bag is frozen");
+    }
+
+    @Override
+    public PublicBag set(String key, Object value) {
+        throw new UnsupportedOperationException("Bag is frozen");
+    }
+
+    @Override
+    public PublicBag setLong(String key, long value) {
+        throw new UnsupportedOperationException("Bag is frozen");
+    }
+
+    @Override
+    public PublicBag setInt(String key, int value) {
+        throw new UnsupportedOperationException("Bag is frozen");
+    }
+
+    @Override
+    public PublicBag setDouble(String key, double value) {
+        throw new UnsupportedOperationException("Bag is frozen");
+    }
+
+    @Override
+    public PublicBag setBoolean(String key, boolean value) {
+        throw new UnsupportedOperationException("Bag is frozen");
+    }
+
+    @Override
+    public PublicBag remove(String key) {
+        throw new UnsupportedOperationException("Bag is frozen");
+    }
+
+    @Override
+    public FrozenBag snapshot() {
+        return this;
+    }
+
+    /**
+     * Копирует значение целиком, вместе с вложенными коллекциями, массивами и сумками, иначе снимок делил бы с исходной
+     * сумкой вложенные изменяемые объекты.
+     */
+    private static Object freezeValue(Object value) {
+        if(value instanceof List) {
+            var list = (List<?>) value;
+            var result = new ArrayList<>(list.size());
+
+            for(var current: list) {
+                result.add(freezeElement(current));
+            }
+
+            return Collections.unmodifiableList(result);
+        } else if(value instanceof Set) {
+            var set = (Set<?>) value;
+            var result = new LinkedHashSet<>(set.size() * 4 / 3 + 1);
+
+            for(var current: set) {
+                result.add(freezeElement(current));
+            }
+
+            return Collections.unmodifiableSet(result);
+        } else if(value instanceof Map) {
+            var map = (Map<?, ?>) value;
+            var result = new LinkedHashMap<>(map.size() * 4 / 3 + 1);
+
+            for(var current: map.entrySet()) {
+                result.put(current.getKey(), freezeElement(current.getValue()));
+            }
+
+            return Collections.unmodifiableMap(result);
+        } else if(value instanceof Collection) {
+            var collection = (Collection<?>) value;
+            var result = new ArrayList<>(collection.size());
+
+            for(var current: collection) {
+                result.add(freezeElement(current));
+            }
+
+            return Collections.unmodifiableCollection(result);
+        } else if(value instanceof Object[]) {
+            var array = ((Object[]) value).clone();
+
+            for(var i = 0; i < array.length; i++) {
+                array[i] = freezeValue(array[i]);
+            }
+
+            return array;
+        } else if(value != null && value.getClass().isArray()) {
+            return cloneArray(value);
+        } else if(value instanceof PublicBag) {
+            return ((PublicBag) value).snapshot();
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * Массив внутри коллекции нельзя отдать копией при чтении, поэтому он становится неизменяемым списком
+     */
+    private static Object freezeElement(Object value) {
+        if(value != null && value.getClass().isArray()) {
+            var length = Array.getLength(value);
+            var result = new ArrayList<>(length);
+
+            for(var i = 0; i < length; i++) {
+                result.add(freezeElement(Array.get(value, i)));
+            }
+
+            return Collections.unmodifiableList(result);
+        } else {
+            return freezeValue(value);
+        }
+    }
+
+    /**
+     * Массив снимка изменяем, поэтому наружу отдается его копия, вместе с вложенными массивами
+     */
+    private static Object copyOut(Object value) {
+        if(value instanceof Object[]) {
+            var array = ((Object[]) value).clone();
+
+            for(var i = 0; i < array.length; i++) {
+                array[i] = copyOut(array[i]);
+            }
+
+            return array;
+        } else if(value != null && value.getClass().isArray()) {
+            return cloneArray(value);
+        } else {
+            return value;
+        }
+    }
+
+    private static Object cloneArray(Object array) {
+        var length = Array.getLength(array);
+        var result = Array.newInstance(array.getClass().getComponentType(), length);
+
+        System.arraycopy(array, 0, result, 0, length);
+
+        return result;
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.asewhy.project.dto.optional.preprocessor.runtime;
+
+import java.util.*;
+
+/**
+ * Список int значений поверх int[]. Методы getInt/addInt/setInt работают без упаковки, методы {@link List}
+ * оставлены для совместимости с {@link PublicBag#getIntList(String)}.
+ */
+public class IntList extends AbstractList<Integer> implements RandomAccess {
+    private int[] values;
+    private int size;
+
+    public IntList() {
+        this(10);
+    }
+
+    public IntList(int capacity) {
+        this.values = new int[capacity];
+        this.size = 0;
+    }
+
+    public static IntList copyOf(Collection<?> from) {
+        var result = new IntList(from.size());
+
+        for(var current: from) {
+            result.addInt(((Number) current).intValue());
+        }
+
+        return result;
+    }
+
+    public int getInt(int index) {
+        Objects.checkIndex(index, this.size);
+        return this.values[index];
+    }
+
+    public int setInt(int index, int value) {
+        Objects.checkIndex(index, this.size);
+
+        var old = this.values[index];
+
+        this.values[index] = value;
+
+        return old;
+    }
+
+    public void addInt(int value) {
+        if(this.size == this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(this.size * 2, 10));
+        }
+
+        this.values[this.size++] = value;
+        this.modCount++;
+    }
+
+    public int[] toIntArray() {
+        return Arrays.copyOf(this.values, this.size);
+    }
+
+    @Override
+    public Integer get(int index) {
+        return this.getInt(index);
+    }
+
+    @Override
+    public Integer set(int index, Integer element) {
+        return this.setInt(index, element);
+    }
+
+    @Override
+    public void add(int index, Integer element) {
+        Objects.checkIndex(index, this.size + 1);
+
+        if(this.size == this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(this.size * 2, 10));
+        }
+
+        System.arraycopy(this.values, index, this.values, index + 1, this.size - index);
+
+        this.values[index] = element;
+        this.size++;
+        this.modCount++;
+    }
+
+    @Override
+    public Integer remove(int index) {
+        var old = this.getInt(index);
+
+        System.arraycopy(this.values, index + 1, this.values, index, this.size - index - 1);
+
+        this.size--;
+        this.modCount++;
+
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        this.size = 0;
+        this.modCount++;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+}
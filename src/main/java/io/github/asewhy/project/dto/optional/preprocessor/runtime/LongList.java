@@ -0,0 +1,107 @@
+package io.github.asewhy.project.dto.optional.preprocessor.runtime;
+
+import java.util.*;
+
+/**
+ * Список long значений поверх long[]. Методы getLong/addLong/setLong работают без упаковки, методы {@link List}
+ * оставлены для совместимости с {@link PublicBag#getLongList(String)}.
+ */
+public class LongList extends AbstractList<Long> implements RandomAccess {
+    private long[] values;
+    private int size;
+
+    public LongList() {
+        this(10);
+    }
+
+    public LongList(int capacity) {
+        this.values = new long[capacity];
+        this.size = 0;
+    }
+
+    public static LongList copyOf(Collection<?> from) {
+        var result = new LongList(from.size());
+
+        for(var current: from) {
+            result.addLong(((Number) current).longValue());
+        }
+
+        return result;
+    }
+
+    public long getLong(int index) {
+        Objects.checkIndex(index, this.size);
+        return this.values[index];
+    }
+
+    public long setLong(int index, long value) {
+        Objects.checkIndex(index, this.size);
+
+        var old = this.values[index];
+
+        this.values[index] = value;
+
+        return old;
+    }
+
+    public void addLong(long value) {
+        if(this.size == this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(this.size * 2, 10));
+        }
+
+        this.values[this.size++] = value;
+        this.modCount++;
+    }
+
+    public long[] toLongArray() {
+        return Arrays.copyOf(this.values, this.size);
+    }
+
+    @Override
+    public Long get(int index) {
+        return this.getLong(index);
+    }
+
+    @Override
+    public Long set(int index, Long element) {
+        return this.setLong(index, element);
+    }
+
+    @Override
+    public void add(int index, Long element) {
+        Objects.checkIndex(index, this.size + 1);
+
+        if(this.size == this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(this.size * 2, 10));
+        }
+
+        System.arraycopy(this.values, index, this.values, index + 1, this.size - index);
+
+        this.values[index] = element;
+        this.size++;
+        this.modCount++;
+    }
+
+    @Override
+    public Long remove(int index) {
+        var old = this.getLong(index);
+
+        System.arraycopy(this.values, index + 1, this.values, index, this.size - index - 1);
+
+        this.size--;
+        this.modCount++;
+
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        this.size = 0;
+        this.modCount++;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.asewhy.project.dto.optional.preprocessor.runtime;
+
+import java.util.Map;
+
+/**
+ * Таблица с открытой адресацией для примитивных значений {@link PublicBag}. Все значения хранятся в long[]
+ * (double через битовое представление), поэтому запись и чтение не упаковывают значения в объекты.
+ */
+class PrimitiveTable {
+    static final byte LONG = 1;
+    static final byte INT = 2;
+    static final byte DOUBLE = 3;
+    static final byte BOOLEAN = 4;
+
+    private String[] keys = new String[8];
+    private long[] values = new long[8];
+    private byte[] kinds = new byte[8];
+    private int size = 0;
+
+    int indexOf(String key) {
+        var mask = this.keys.length - 1;
+        var i = mix(key.hashCode()) & mask;
+
+        while(this.keys[i] != null) {
+            if(this.keys[i].equals(key)) {
+                return i;
+            }
+
+            i = (i + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    void put(String key, long value, byte kind) {
+        if((this.size + 1) * 2 > this.keys.length) {
+            this.grow();
+        }
+
+        var mask = this.keys.length - 1;
+        var i = mix(key.hashCode()) & mask;
+
+        while(this.keys[i] != null) {
+            if(this.keys[i].equals(key)) {
+                this.values[i] = value;
+                this.kinds[i] = kind;
+                return;
+            }
+
+            i = (i + 1) & mask;
+        }
+
+        this.keys[i] = key;
+        this.values[i] = value;
+        this.kinds[i] = kind;
+        this.size++;
+    }
+
+    void remove(String key) {
+        var i = this.indexOf(key);
+
+        if(i < 0) {
+            return;
+        }
+
+        var mask = this.keys.length - 1;
+
+        this.keys[i] = null;
+        this.size--;
+
+        //
+        // Линейное пробирование не допускает дыр в цепочке, поэтому хвост цепочки вставляется заново
+        //
+        for(var j = (i + 1) & mask; this.keys[j] != null; j = (j + 1) & mask) {
+            var key_j = this.keys[j];
+
+            this.keys[j] = null;
+            this.size--;
+            this.put(key_j, this.values[j], this.kinds[j]);
+        }
+    }
+
+    long getLong(int index) {
+        return this.kinds[index] == DOUBLE ? (long) Double.longBitsToDouble(this.values[index]) : this.values[index];
+    }
+
+    double getDouble(int index) {
+        return this.kinds[index] == DOUBLE ? Double.longBitsToDouble(this.values[index]) : this.values[index];
+    }
+
+    Object getBoxed(int index) {
+        switch (this.kinds[index]) {
+            case INT: return (int) this.values[index];
+            case DOUBLE: return Double.longBitsToDouble(this.values[index]);
+            case BOOLEAN: return this.values[index] != 0;
+            default: return this.values[index];
+        }
+    }
+
+    void fill(Map<String, Object> fill) {
+        for(var i = 0; i < this.keys.length; i++) {
+            if(this.keys[i] != null) {
+                fill.put(this.keys[i], this.getBoxed(i));
+            }
+        }
+    }
+
+    private void grow() {
+        var old_keys = this.keys;
+        var old_values = this.values;
+        var old_kinds = this.kinds;
+
+        this.keys = new String[old_keys.length * 2];
+        this.values = new long[old_keys.length * 2];
+        this.kinds = new byte[old_keys.length * 2];
+        this.size = 0;
+
+        for(var i = 0; i < old_keys.length; i++) {
+            if(old_keys[i] != null) {
+                this.put(old_keys[i], old_values[i], old_kinds[i]);
+            }
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
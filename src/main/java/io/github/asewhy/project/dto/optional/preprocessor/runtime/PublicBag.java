@@ -3,26 +3,67 @@ package io.github.asewhy.project.dto.optional.preprocessor.runtime;
 import java.util.*;
 
 public class PublicBag {
-    private final Map<String, Object> contains;
+    private Map<String, Object> contains;
+    private PrimitiveTable primitives;
 
     public PublicBag(){
-        this.contains = new HashMap<>();
+        this.contains = null;
+        this.primitives = null;
     }
 
     public PublicBag(Map<String, Object> contains){
         this.contains = Objects.requireNonNullElseGet(contains, HashMap::new);
+        this.primitives = null;
     }
 
     public void fill(Map<String, Object> fill) {
-        fill.putAll(this.contains);
+        if(this.contains != null) {
+            fill.putAll(this.contains);
+        }
+
+        if(this.primitives != null) {
+            this.primitives.fill(fill);
+        }
     }
 
     public PublicBag set(String key, Object value) {
-        this.contains.put(key, value); return this;
+        if(this.primitives != null) {
+            this.primitives.remove(key);
+        }
+
+        this.getContains().put(key, value); return this;
+    }
+
+    public PublicBag setLong(String key, long value) {
+        return this.setPrimitive(key, value, PrimitiveTable.LONG) ? this : this.set(key, value);
+    }
+
+    public PublicBag setInt(String key, int value) {
+        return this.setPrimitive(key, value, PrimitiveTable.INT) ? this : this.set(key, value);
+    }
+
+    public PublicBag setDouble(String key, double value) {
+        return this.setPrimitive(key, Double.doubleToRawLongBits(value), PrimitiveTable.DOUBLE) ? this : this.set(key, value);
+    }
+
+    public PublicBag setBoolean(String key, boolean value) {
+        return this.setPrimitive(key, value ? 1 : 0, PrimitiveTable.BOOLEAN) ? this : this.set(key, value);
     }
 
     public PublicBag remove(String key) {
-        this.contains.remove(key); return this;
+        if(this.contains != null) {
+            this.contains.remove(key);
+        }
+
+        if(this.primitives != null) {
+            this.primitives.remove(key);
+        }
+
+        return this;
+    }
+
+    public Boolean has(String key) {
+        return this.contains != null && this.contains.containsKey(key) || this.primitives != null && this.primitives.indexOf(key) >= 0;
     }
 
     @SuppressWarnings("unchecked")
@@ -31,7 +72,7 @@ public class PublicBag {
             return (List<T>) this.get(key);
         } else {
             var list = new ArrayList<T>();
-            this.contains.put(key, list);
+            this.set(key, list);
             return list;
         }
     }
@@ -52,32 +93,210 @@ public class PublicBag {
         return getList(key);
     }
 
+    /**
+     * Возвращает список long значений без упаковки элементов. Новый список сохраняется в сумке только если ключа нет,
+     * для обычной коллекции возвращается отдельная копия, значение по ключу не меняется, см. {@link #toLongList(String)}.
+     */
+    public LongList getLongListView(String key) {
+        var value = this.get(key);
+
+        if(value instanceof LongList) {
+            return (LongList) value;
+        } else if(value instanceof Collection) {
+            return LongList.copyOf((Collection<?>) value);
+        } else if(value != null || this.has(key)) {
+            return new LongList(0);
+        } else {
+            var list = new LongList();
+            this.set(key, list);
+            return list;
+        }
+    }
+
+    /**
+     * Возвращает список int значений без упаковки элементов. Новый список сохраняется в сумке только если ключа нет,
+     * для обычной коллекции возвращается отдельная копия, значение по ключу не меняется, см. {@link #toIntList(String)}.
+     */
+    public IntList getIntListView(String key) {
+        var value = this.get(key);
+
+        if(value instanceof IntList) {
+            return (IntList) value;
+        } else if(value instanceof Collection) {
+            return IntList.copyOf((Collection<?>) value);
+        } else if(value != null || this.has(key)) {
+            return new IntList(0);
+        } else {
+            var list = new IntList();
+            this.set(key, list);
+            return list;
+        }
+    }
+
+    /**
+     * Один раз копирует коллекцию чисел по ключу в {@link LongList} и заменяет ей исходное значение, после этого
+     * {@link #getLongListView(String)} возвращает этот же список. Значение другого типа заменяется пустым списком.
+     */
+    public LongList toLongList(String key) {
+        var value = this.get(key);
+
+        if(value instanceof LongList) {
+            return (LongList) value;
+        } else {
+            var list = value instanceof Collection ? LongList.copyOf((Collection<?>) value) : new LongList();
+            this.set(key, list);
+            return list;
+        }
+    }
+
+    /**
+     * Один раз копирует коллекцию чисел по ключу в {@link IntList} и заменяет ей исходное значение, после этого
+     * {@link #getIntListView(String)} возвращает этот же список. Значение другого типа заменяется пустым списком.
+     */
+    public IntList toIntList(String key) {
+        var value = this.get(key);
+
+        if(value instanceof IntList) {
+            return (IntList) value;
+        } else {
+            var list = value instanceof Collection ? IntList.copyOf((Collection<?>) value) : new IntList();
+            this.set(key, list);
+            return list;
+        }
+    }
+
     public Long getLong(String key) {
-        return (Long) this.contains.get(key);
+        return (Long) this.get(key);
     }
 
     public String getString(String key) {
-        return (String) this.contains.get(key);
+        return (String) this.get(key);
     }
 
     public Integer getInt(String key) {
-        return (Integer) this.contains.get(key);
+        return (Integer) this.get(key);
     }
 
     public Double getDouble(String key) {
-        return (Double) this.contains.get(key);
+        return (Double) this.get(key);
     }
 
     public Boolean getBoolean(String key) {
-        return (Boolean) this.contains.get(key);
+        return (Boolean) this.get(key);
+    }
+
+    public long getLongOrDefault(String key, long def) {
+        var index = this.primitives != null ? this.primitives.indexOf(key) : -1;
+
+        if(index >= 0) {
+            return this.primitives.getLong(index);
+        }
+
+        var value = this.get(key);
+
+        return value instanceof Number ? ((Number) value).longValue() : def;
+    }
+
+    public int getIntOrDefault(String key, int def) {
+        var index = this.primitives != null ? this.primitives.indexOf(key) : -1;
+
+        if(index >= 0) {
+            return (int) this.primitives.getLong(index);
+        }
+
+        var value = this.get(key);
+
+        return value instanceof Number ? ((Number) value).intValue() : def;
+    }
+
+    public double getDoubleOrDefault(String key, double def) {
+        var index = this.primitives != null ? this.primitives.indexOf(key) : -1;
+
+        if(index >= 0) {
+            return this.primitives.getDouble(index);
+        }
+
+        var value = this.get(key);
+
+        return value instanceof Number ? ((Number) value).doubleValue() : def;
+    }
+
+    public boolean getBooleanOrDefault(String key, boolean def) {
+        var index = this.primitives != null ? this.primitives.indexOf(key) : -1;
+
+        if(index >= 0) {
+            return this.primitives.getLong(index) != 0;
+        }
+
+        var value = this.get(key);
+
+        return value instanceof Boolean ? (Boolean) value : def;
     }
 
     @SuppressWarnings("unchecked")
     public <T> T get(String key, T cast) {
-        return (T) this.contains.get(key);
+        return (T) this.get(key);
     }
 
     public Object get(String key) {
-        return this.contains.get(key);
+        if(this.primitives != null) {
+            var index = this.primitives.indexOf(key);
+
+            if(index >= 0) {
+                return this.primitives.getBoxed(index);
+            }
+        }
+
+        return this.contains != null ? this.contains.get(key) : null;
+    }
+
+    /**
+     * Создает неизменяемый снимок текущего содержимого. Вложенные коллекции и сумки копируются, поэтому дальнейшие
+     * изменения этой сумки снимок не затрагивают.
+     */
+    public FrozenBag snapshot() {
+        var fill = new HashMap<String, Object>();
+
+        this.fill(fill);
+
+        return new FrozenBag(fill);
+    }
+
+    /**
+     * Ключи схемы сгенерированных наследников хранятся в их слотах, поэтому примитивные значения для таких ключей
+     * записываются через {@link #set(String, Object)}.
+     */
+    protected Boolean isSchemaKey(String key) {
+        return false;
+    }
+
+    /**
+     * Карта создается при первой записи, сгенерированные наследники хранят поля схемы в своих слотах и обращаются к ней
+     * только для ключей вне схемы.
+     */
+    private Map<String, Object> getContains() {
+        if(this.contains == null) {
+            this.contains = new HashMap<>();
+        }
+
+        return this.contains;
+    }
+
+    private boolean setPrimitive(String key, long value, byte kind) {
+        if(this.isSchemaKey(key)) {
+            return false;
+        }
+
+        if(this.contains != null) {
+            this.contains.remove(key);
+        }
+
+        if(this.primitives == null) {
+            this.primitives = new PrimitiveTable();
+        }
+
+        this.primitives.put(key, value, kind);
+
+        return true;
     }
 }
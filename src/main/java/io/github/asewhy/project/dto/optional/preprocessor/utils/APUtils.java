@@ -1,23 +1,31 @@
 package io.github.asewhy.project.dto.optional.preprocessor.utils;
 
 import io.github.asewhy.project.dto.optional.preprocessor.enums.FieldPolicy;
+import io.github.asewhy.project.dto.optional.preprocessor.runtime.FieldNames;
 
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.MirroredTypeException;
 import javax.lang.model.type.MirroredTypesException;
 import javax.lang.model.type.TypeMirror;
 import javax.tools.Diagnostic;
 import java.lang.reflect.Proxy;
-import java.util.Arrays;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Locale;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * Стырил https://stackoverflow.com/questions/7687829/java-6-annotation-processing-getting-a-class-from-an-annotation
  */
 
 public class APUtils {
+    private static final Map<FieldPolicy, Map<String, String>> CASE_CACHE = new ConcurrentHashMap<>();
+
     @FunctionalInterface
     public interface GetClassValue {
         void execute() throws MirroredTypeException, MirroredTypesException;
@@ -33,18 +41,37 @@ public class APUtils {
         return List.of();
     }
 
-    public static Boolean classExists(String full_name) {
-        try {
-            Class.forName(full_name);
+    /**
+     * Вернет перечисление, если элемент является перечислением без jackson аннотаций (@JsonValue, @JsonProperty и т.п.),
+     * т.е. таким, которое jackson записывает и читает по имени константы.
+     */
+    public static TypeElement getPlainEnum(Element element) {
+        if(element == null || element.getKind() != ElementKind.ENUM) {
+            return null;
+        }
 
-            return true;
-        } catch (ClassNotFoundException e) {
-            return false;
+        if(hasAnnotationsFrom(element, "com.fasterxml.jackson.annotation.")) {
+            return null;
         }
+
+        for(var enclosed: element.getEnclosedElements()) {
+            if(hasAnnotationsFrom(enclosed, "com.fasterxml.jackson.annotation.")) {
+                return null;
+            }
+        }
+
+        return (TypeElement) element;
     }
 
-    public static Boolean classesExists(String ...full_names) {
-        return Arrays.stream(full_names).allMatch(APUtils::classExists);
+    public static List<String> getEnumConstants(TypeElement element) {
+        return element.getEnclosedElements().stream()
+            .filter(e -> e.getKind() == ElementKind.ENUM_CONSTANT)
+            .map(e -> e.getSimpleName().toString())
+        .collect(Collectors.toList());
+    }
+
+    public static Boolean hasAnnotationsFrom(Element element, String annotation_package) {
+        return element.getAnnotationMirrors().stream().anyMatch(e -> e.getAnnotationType().toString().startsWith(annotation_package));
     }
 
     public static String camelCase(String input) {
@@ -52,44 +79,78 @@ public class APUtils {
     }
 
     public static String toSnakeCase(String input) {
-        return input.replaceAll("([A-Z]+)([A-Z][a-z])", "$1_$2").replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase();
+        return FieldNames.toSnakeCase(input);
     }
 
     public static String toSnakeUpperCase(String input) {
-        return input.replaceAll("([A-Z]+)([A-Z][a-z])", "$1_$2").replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase(Locale.ROOT);
+        return FieldNames.toSnakeCase(input);
     }
 
     public static String toSnakeLowerCase(String input) {
-        return input.replaceAll("([A-Z]+)([A-Z][a-z])", "$1_$2").replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT);
+        return FieldNames.toUpperSnakeCase(input);
     }
 
     public static String toKebabCase(String input) {
-        return input.replaceAll("([A-Z]+)([A-Z][a-z])", "$1_$2").replaceAll("([a-z])([A-Z])", "$1-$2").toLowerCase();
+        return FieldNames.toKebabCase(input);
     }
 
     public static String toKebabLowerCase(String input) {
-        return input.replaceAll("([A-Z]+)([A-Z][a-z])", "$1_$2").replaceAll("([a-z])([A-Z])", "$1-$2").toLowerCase(Locale.ROOT);
+        return FieldNames.toKebabCase(input);
     }
 
     public static String toKebabUpperCase(String input) {
-        return input.replaceAll("([A-Z]+)([A-Z][a-z])", "$1_$2").replaceAll("([a-z])([A-Z])", "$1-$2").toUpperCase(Locale.ROOT);
+        return FieldNames.toUpperKebabCase(input);
     }
 
+    /**
+     * Одно и то же имя поля конвертируется многократно (аннотации, switch десериализатора, константы сериализатора),
+     * поэтому результат запоминается до конца обработки, см. {@link #clearCaches()}
+     */
     public static String convertToCurrentCase(String input, FieldPolicy policy) {
-        if(policy == null) {
-            return toSnakeCase(input);
+        var current = policy != null ? policy : FieldPolicy.SnakeCase;
+
+        return CASE_CACHE.computeIfAbsent(current, e -> new ConcurrentHashMap<>()).computeIfAbsent(input, e -> FieldNames.convert(e, current));
+    }
+
+    /**
+     * Вызывается процессорами после последнего раунда, чтобы кэш не переживал компиляцию в долгоживущем процессе сборки
+     */
+    public static void clearCaches() {
+        CASE_CACHE.clear();
+        Capabilities.clear();
+    }
+
+    /**
+     * Имя long поля битовой маски, в котором хранится признак наличия поля с этим порядковым номером
+     */
+    public static String toPresenceField(Integer ordinal) {
+        return "presence$" + (ordinal / 64);
+    }
+
+    public static String toPresenceMask(Integer ordinal) {
+        return "0x" + Long.toHexString(1L << (ordinal % 64)) + "L";
+    }
+
+    public static String toPresenceCheck(Integer ordinal) {
+        return "(this." + toPresenceField(ordinal) + " & " + toPresenceMask(ordinal) + ") != 0";
+    }
+
+    public static String toPresenceMark(Integer ordinal) {
+        return "this." + toPresenceField(ordinal) + " |= " + toPresenceMask(ordinal) + ";";
+    }
+
+    /**
+     * 64 битный FNV-1a хэш описания схемы в виде long литерала, не зависит от версии jdk в отличие от String.hashCode
+     */
+    public static String toSchemaHash(String schema) {
+        var hash = 0xcbf29ce484222325L;
+
+        for(var current: schema.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= current & 0xff;
+            hash *= 0x100000001b3L;
         }
 
-        return switch (policy) {
-            case CamelCase -> Pattern.compile("(?:_|-)([a-z])").matcher(input).replaceAll(m -> m.group(1).toUpperCase());
-            case SnakeCase -> toSnakeCase(input);
-            case LowerSnakeCase -> toSnakeLowerCase(input);
-            case UpperSnakeCase -> toSnakeUpperCase(input);
-            case KebabCase -> toKebabCase(input);
-            case LowerKebabCase -> toKebabLowerCase(input);
-            case UpperKebabCase -> toKebabUpperCase(input);
-            case None -> input;
-        };
+        return "0x" + Long.toHexString(hash) + "L";
     }
 
     public static String toGetter(String field_name) {
@@ -116,6 +177,9 @@ public class APUtils {
      * but java.lang.reflect.Proxy.
      * The com.sun.source.util.Trees.instance() throws an IllegalArgumentException when the proxied processingEnv is passed.
      *
+     * Так же снимает обертку gradle, см. ниже. Filer при этом нужно брать из исходного окружения, иначе gradle не узнает
+     * о сгенерированных файлах.
+     *
      * @param processingEnv possible proxied
      * @return ProcessingEnvironment unwrapped from the proxy if proxied or the original processingEnv
      */
@@ -140,6 +204,29 @@ public class APUtils {
                 processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage());
                 return null;
             }
+        } else if(!processingEnv.getClass().getName().startsWith("com.sun.tools.javac.")) {
+            //
+            // Gradle оборачивает окружение инкрементальных процессоров, исходное окружение javac лежит в поле delegate
+            //
+            for(Class<?> type = processingEnv.getClass(); type != null; type = type.getSuperclass()) {
+                try {
+                    var field = type.getDeclaredField("delegate");
+
+                    field.setAccessible(true);
+
+                    var o = field.get(processingEnv);
+
+                    if(o instanceof ProcessingEnvironment) {
+                        return unwrap((ProcessingEnvironment) o);
+                    }
+                } catch (NoSuchFieldException e) {
+                    continue;
+                } catch (IllegalAccessException | RuntimeException e) {
+                    break;
+                }
+            }
+
+            return processingEnv;
         } else {
             return processingEnv;
         }
@@ -0,0 +1,64 @@
+package io.github.asewhy.project.dto.optional.preprocessor.utils;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.util.Elements;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Возможности classpath компиляции, от которых зависит сгенерированный код. Проверяются через модель компилятора
+ * (Elements.getTypeElement), а не Class.forName, т.к. classloader процессора может не видеть classpath компиляции.
+ * Считаются один раз на раунд и общие для обоих процессоров. Кэш слабо ссылается на окружение и раунд, чтобы не
+ * держать контекст javac после компиляции в долгоживущем процессе сборки.
+ */
+public class Capabilities {
+    private static final Map<ProcessingEnvironment, Cached> CACHE = new WeakHashMap<>();
+
+    public Boolean jackson_serializer;
+    public Boolean jackson_deserializer;
+    public Boolean jackson_java_time;
+
+    public static synchronized Capabilities of(ProcessingEnvironment env, RoundEnvironment round) {
+        var cached = CACHE.get(env);
+
+        if(cached == null || cached.round.get() != round) {
+            var elements = env.getElementUtils();
+            var result = new Capabilities();
+
+            result.jackson_serializer = exists(elements, "com.fasterxml.jackson.core.JsonGenerator", "com.fasterxml.jackson.databind.SerializerProvider", "com.fasterxml.jackson.databind.ser.std.StdSerializer", "com.fasterxml.jackson.databind.annotation.JsonSerialize");
+            result.jackson_deserializer = exists(elements, "com.fasterxml.jackson.core.JsonParser", "com.fasterxml.jackson.databind.DeserializationContext", "com.fasterxml.jackson.databind.deser.std.StdDeserializer", "com.fasterxml.jackson.databind.annotation.JsonDeserialize");
+            result.jackson_java_time = exists(elements, "com.fasterxml.jackson.datatype.jsr310.JavaTimeModule");
+
+            cached = new Cached(round, result);
+
+            CACHE.put(env, cached);
+        }
+
+        return cached.capabilities;
+    }
+
+    public static synchronized void clear() {
+        CACHE.clear();
+    }
+
+    private static Boolean exists(Elements elements, String ...full_names) {
+        return Arrays.stream(full_names).allMatch(e -> elements.getTypeElement(e) != null);
+    }
+
+    //
+    // Раунд javac ссылается на окружение, поэтому значение держит его только слабой ссылкой, иначе ключ WeakHashMap
+    // никогда бы не освободился
+    //
+    private static class Cached {
+        private final WeakReference<RoundEnvironment> round;
+        private final Capabilities capabilities;
+
+        private Cached(RoundEnvironment round, Capabilities capabilities) {
+            this.round = new WeakReference<>(round);
+            this.capabilities = capabilities;
+        }
+    }
+}
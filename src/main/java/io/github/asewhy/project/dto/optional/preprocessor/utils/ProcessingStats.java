@@ -0,0 +1,230 @@
+package io.github.asewhy.project.dto.optional.preprocessor.utils;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Замеры работы процессора по классам, включаются опцией компилятора -Adto.stats=true. Фазы: extract - разбор полей
+ * через модель компилятора, constructor - сборка конструкторов и фабрик, write - создание файлов и запись в Filer,
+ * render - все остальное время обработки класса. В конце компиляции пишет dto-stats/ИМЯ.csv в каталог классов и
+ * краткую сводку в Messager. Когда опция выключена все методы ничего не делают.
+ */
+public class ProcessingStats {
+    public static final String OPTION = "dto.stats";
+    public static final String[] PHASES = { "extract", "constructor", "write" };
+
+    private final Map<String, ClassStats> classes = new LinkedHashMap<>();
+    private final String name;
+    private final Boolean enabled;
+
+    public ProcessingStats(ProcessingEnvironment env, String name) {
+        this.name = name;
+        this.enabled = "true".equalsIgnoreCase(env.getOptions().get(OPTION));
+    }
+
+    public Boolean isEnabled() {
+        return enabled;
+    }
+
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public synchronized void record(Element clazz, String phase, long started) {
+        if(enabled) {
+            of(clazz).phases.merge(phase, System.nanoTime() - started, Long::sum);
+        }
+    }
+
+    public synchronized void total(Element clazz, long started) {
+        if(enabled) {
+            of(clazz).total += System.nanoTime() - started;
+        }
+    }
+
+    public synchronized void skipped(Element clazz, Integer count) {
+        if(enabled) {
+            of(clazz).skipped += count;
+        }
+    }
+
+    /**
+     * Открывает writer сгенерированного файла. Время открытия и записи в Filer идет в фазу write, так же считаются
+     * файлы и их размер в байтах UTF-8.
+     */
+    public Writer open(Element clazz, FileObject file) throws IOException {
+        if(!enabled) {
+            return file.openWriter();
+        }
+
+        var started = System.nanoTime();
+        var writer = file.openWriter();
+
+        record(clazz, "write", started);
+
+        return new CountingWriter(clazz, writer);
+    }
+
+    /**
+     * Вызывается после последнего раунда, пишет отчет и сбрасывает накопленное
+     */
+    public synchronized void report(Filer filer, Messager messager) {
+        if(!enabled || classes.isEmpty()) {
+            return;
+        }
+
+        var location = "dto-stats/" + name + ".csv";
+
+        try (var pw = new PrintWriter(filer.createResource(StandardLocation.CLASS_OUTPUT, "", location).openWriter())) {
+            pw.println("class,total_ms,extract_ms,constructor_ms,render_ms,write_ms,skipped_fields,files,bytes");
+
+            for(var entry: classes.entrySet()) {
+                var current = entry.getValue();
+
+                pw.println(
+                    entry.getKey() + "," +
+                    toMillis(current.total) + "," +
+                    toMillis(current.phase("extract")) + "," +
+                    toMillis(current.phase("constructor")) + "," +
+                    toMillis(current.render()) + "," +
+                    toMillis(current.phase("write")) + "," +
+                    current.skipped + "," +
+                    current.files + "," +
+                    current.bytes
+                );
+            }
+        } catch (IOException x) {
+            messager.printMessage(Diagnostic.Kind.WARNING, "Cannot write " + location + ". " + x.getMessage());
+        }
+
+        var total = classes.values().stream().mapToLong(e -> e.total).sum();
+        var files = classes.values().stream().mapToInt(e -> e.files).sum();
+        var bytes = classes.values().stream().mapToLong(e -> e.bytes).sum();
+        var skipped = classes.values().stream().mapToInt(e -> e.skipped).sum();
+        var slowest = classes.entrySet().stream()
+            .sorted(Comparator.comparingLong((Map.Entry<String, ClassStats> e) -> e.getValue().total).reversed())
+            .limit(3)
+            .map(e -> e.getKey() + " " + toMillis(e.getValue().total) + "ms")
+        .collect(Collectors.joining(", "));
+
+        messager.printMessage(
+            Diagnostic.Kind.NOTE,
+            "[" + OPTION + "] " + name + ": " + classes.size() + " classes in " + toMillis(total) + "ms, " +
+            files + " files, " + bytes + " bytes, " + skipped + " skipped fields. Slowest: " + slowest + ". Report: " + location
+        );
+
+        classes.clear();
+    }
+
+    private ClassStats of(Element clazz) {
+        var key = clazz instanceof TypeElement ? ((TypeElement) clazz).getQualifiedName().toString() : clazz.toString();
+
+        return classes.computeIfAbsent(key, e -> new ClassStats());
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static class ClassStats {
+        public final Map<String, Long> phases = new HashMap<>();
+        public long total;
+        public int skipped;
+        public int files;
+        public long bytes;
+
+        public long phase(String phase) {
+            return phases.getOrDefault(phase, 0L);
+        }
+
+        public long render() {
+            return Math.max(0L, total - Arrays.stream(PHASES).mapToLong(this::phase).sum());
+        }
+    }
+
+    private class CountingWriter extends Writer {
+        private final Element clazz;
+        private final Writer delegate;
+        private long bytes;
+        private long nanos;
+
+        private CountingWriter(Element clazz, Writer delegate) {
+            this.clazz = clazz;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            for(var i = offset; i < offset + length; i++) {
+                bytes += toUtf8Length(buffer[i]);
+            }
+
+            var started = System.nanoTime();
+
+            delegate.write(buffer, offset, length);
+            nanos += System.nanoTime() - started;
+        }
+
+        @Override
+        public void write(String value, int offset, int length) throws IOException {
+            for(var i = offset; i < offset + length; i++) {
+                bytes += toUtf8Length(value.charAt(i));
+            }
+
+            var started = System.nanoTime();
+
+            delegate.write(value, offset, length);
+            nanos += System.nanoTime() - started;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            var started = System.nanoTime();
+
+            delegate.flush();
+            nanos += System.nanoTime() - started;
+        }
+
+        @Override
+        public void close() throws IOException {
+            var started = System.nanoTime();
+
+            delegate.close();
+            nanos += System.nanoTime() - started;
+
+            synchronized (ProcessingStats.this) {
+                var current = of(clazz);
+
+                current.phases.merge("write", nanos, Long::sum);
+                current.files++;
+                current.bytes += bytes;
+            }
+        }
+
+        //
+        // Суррогатная пара дает 4 байта, по 2 на каждую половину
+        //
+        private int toUtf8Length(char current) {
+            if(current < 0x80) {
+                return 1;
+            } else if(current < 0x800) {
+                return 2;
+            } else if(Character.isSurrogate(current)) {
+                return 2;
+            } else {
+                return 3;
+            }
+        }
+    }
+}
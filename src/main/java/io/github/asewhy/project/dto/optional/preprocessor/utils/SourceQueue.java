@@ -0,0 +1,78 @@
+package io.github.asewhy.project.dto.optional.preprocessor.utils;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.Element;
+import javax.tools.Diagnostic;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Файлы, сгенерированные за раунд. Процессор разбирает модель компилятора и кладет сюда генератор, который работает
+ * только со снимками и готовыми строками, а в {@link #flush} тексты собираются и пишутся в Filer в порядке добавления.
+ * Все идет в потоке компилятора: фрагменты, которые строят препроцессоры полей, требуют Element, а модель javac не
+ * потокобезопасна, поэтому на долю генератора остается только склейка готовых строк.
+ */
+public class SourceQueue {
+    @FunctionalInterface
+    public interface Renderer {
+        void render(PrintWriter pw) throws Exception;
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    public void add(Element origin, String name, Renderer renderer) {
+        entries.add(new Entry(origin, name, renderer));
+    }
+
+    /**
+     * Ошибка в одном файле выводится компилятором и не мешает записать остальные
+     */
+    public void flush(Filer filer, Messager messager, ProcessingStats stats) {
+        for(var entry: entries) {
+            var started = stats.start();
+            var buffer = new StringWriter();
+
+            try {
+                var pw = new PrintWriter(buffer);
+
+                entry.renderer.render(pw);
+                pw.flush();
+            } catch (Exception x) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "Cannot generate " + entry.name + ": " + x, entry.origin);
+                continue;
+            }
+
+            try {
+                var write_started = stats.start();
+                var file = filer.createSourceFile(entry.name, entry.origin);
+
+                stats.record(entry.origin, "write", write_started);
+
+                try (var w = stats.open(entry.origin, file)) {
+                    w.write(buffer.toString());
+                }
+            } catch (Exception x) {
+                messager.printMessage(Diagnostic.Kind.ERROR, x.toString());
+            }
+
+            stats.total(entry.origin, started);
+        }
+
+        entries.clear();
+    }
+
+    private static class Entry {
+        private final Element origin;
+        private final String name;
+        private final Renderer renderer;
+
+        private Entry(Element origin, String name, Renderer renderer) {
+            this.origin = origin;
+            this.name = name;
+            this.renderer = renderer;
+        }
+    }
+}
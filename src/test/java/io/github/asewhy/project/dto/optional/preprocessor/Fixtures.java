@@ -0,0 +1,144 @@
+package io.github.asewhy.project.dto.optional.preprocessor;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.RequestDTO;
+import io.github.asewhy.project.dto.optional.preprocessor.fixture.Item;
+
+import javax.annotation.processing.Processor;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Компилирует исходники из src/test/resources/fixtures вместе с обоими процессорами и загружает результат.
+ * Классы процессора, runtime и jackson берутся из classpath тестов, поэтому их можно использовать напрямую.
+ */
+final class Fixtures {
+    private Fixtures() {
+
+    }
+
+    static Compilation compile(Path dir, String ...resources) {
+        return compile(dir, List.of(new RequestDTOPreprocessor(), new ResponseDTOPreprocessor()), List.of(), resources);
+    }
+
+    /**
+     * Компиляция с заданными процессорами и параметрами компилятора, например -Adto.stats=true
+     */
+    static Compilation compile(Path dir, List<Processor> processors, List<String> options, String ...resources) {
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+
+        try (var files = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+            var sources = new ArrayList<Path>();
+            var classes = Files.createDirectories(dir.resolve("classes"));
+            var generated = Files.createDirectories(dir.resolve("generated"));
+
+            for(var resource: resources) {
+                var target = dir.resolve("src").resolve(resource);
+
+                try (var in = Fixtures.class.getResourceAsStream("/fixtures/" + resource)) {
+                    if(in == null) {
+                        fail("No fixture " + resource);
+                    }
+
+                    Files.createDirectories(target.getParent());
+                    Files.copy(in, target);
+                }
+
+                sources.add(target);
+            }
+
+            files.setLocationFromPaths(StandardLocation.CLASS_PATH, List.of(
+                locationOf(RequestDTO.class),
+                locationOf(JsonGenerator.class),
+                locationOf(ObjectMapper.class),
+                locationOf(JsonAutoDetect.class),
+                locationOf(Item.class)
+            ));
+            files.setLocationFromPaths(StandardLocation.CLASS_OUTPUT, List.of(classes));
+            files.setLocationFromPaths(StandardLocation.SOURCE_OUTPUT, List.of(generated));
+
+            var task = compiler.getTask(null, files, diagnostics, options, null, files.getJavaFileObjectsFromPaths(sources));
+
+            task.setProcessors(processors);
+
+            var success = task.call();
+            var errors = diagnostics.getDiagnostics().stream()
+                .filter(e -> e.getKind() == Diagnostic.Kind.ERROR)
+                .map(e -> e.getSource() + ":" + e.getLineNumber() + " " + e.getMessage(Locale.ROOT))
+            .collect(Collectors.toList());
+
+            if(!success || !errors.isEmpty()) {
+                fail("Fixture compilation failed " + errors);
+            }
+
+            var loader = new URLClassLoader(new URL[] { classes.toUri().toURL() }, Fixtures.class.getClassLoader());
+
+            return new Compilation(loader, generated, diagnostics.getDiagnostics());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path locationOf(Class<?> type) {
+        try {
+            return Path.of(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static final class Compilation {
+        final ClassLoader loader;
+        final Path generated;
+        final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+
+        private Compilation(ClassLoader loader, Path generated, List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+            this.loader = loader;
+            this.generated = generated;
+            this.diagnostics = diagnostics;
+        }
+
+        Class<?> load(String name) {
+            try {
+                return this.loader.loadClass(name);
+            } catch (ClassNotFoundException e) {
+                throw new AssertionError("Not generated: " + name, e);
+            }
+        }
+
+        String source(String name) {
+            try {
+                return Files.readString(this.generated.resolve(name.replace('.', '/') + ".java"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        List<String> warnings() {
+            return this.diagnostics.stream()
+                .filter(e -> e.getKind() == Diagnostic.Kind.WARNING)
+                .map(e -> e.getMessage(Locale.ROOT))
+            .collect(Collectors.toList());
+        }
+    }
+}
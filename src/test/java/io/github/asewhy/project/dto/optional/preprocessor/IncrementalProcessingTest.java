@@ -0,0 +1,206 @@
+package io.github.asewhy.project.dto.optional.preprocessor;
+
+import io.github.asewhy.project.dto.optional.preprocessor.utils.APUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalProcessingTest {
+    @TempDir
+    static Path dir;
+
+    @Test
+    void everyProcessorIsDeclaredIsolating() throws IOException {
+        var processors = read("META-INF/services/javax.annotation.processing.Processor");
+        var incremental = read("META-INF/gradle/incremental.annotation.processors");
+
+        assertFalse(processors.isEmpty());
+        assertEquals(processors.stream().map(e -> e + ",isolating").collect(Collectors.toList()), incremental);
+    }
+
+    @Test
+    void generatedFilesHaveTheirAnnotatedClassAsOrigin() {
+        var origins = new LinkedHashMap<String, List<String>>();
+
+        Fixtures.compile(
+            dir,
+            List.of(new GradleLikeProcessor(new RequestDTOPreprocessor(), origins), new GradleLikeProcessor(new ResponseDTOPreprocessor(), origins)),
+            List.of(),
+            "fixture/request/AddressDTO.java",
+            "fixture/request/CustomerDTO.java",
+            "fixture/response/ItemDTO.java"
+        );
+
+        //
+        // Файлы пишутся через Filer обертки, иначе gradle не узнает о них, а исходным классом указан сам dto
+        //
+        assertTrue(origins.keySet().containsAll(List.of(
+            "fixture.request.CustomerRequestDTO",
+            "fixture.request.CustomerRequestDTODeserializer",
+            "fixture.response.ItemResponseDTO",
+            "fixture.response.ItemResponseDTOSerializer",
+            "fixture.response.ItemResponseView"
+        )), origins.toString());
+
+        origins.forEach((name, elements) -> {
+            var simple = name.substring(name.lastIndexOf('.') + 1);
+            var expected = name.substring(0, name.lastIndexOf('.') + 1) + simple.substring(0, simple.indexOf(simple.contains("Request") ? "Request" : "Response")) + "DTO";
+
+            assertEquals(List.of(expected), elements, name);
+        });
+    }
+
+    @Test
+    void gradleWrapperIsUnwrapped() {
+        var javac = new Environment();
+        var wrapper = new GradleLikeEnvironment(javac, null);
+
+        assertSame(javac, APUtils.unwrap(wrapper));
+        assertSame(javac, APUtils.unwrap(javac));
+    }
+
+    private static List<String> read(String resource) throws IOException {
+        try (var in = IncrementalProcessingTest.class.getClassLoader().getResourceAsStream(resource)) {
+            assertNotNull(in, resource);
+
+            return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)).lines()
+                .map(String::trim)
+                .filter(e -> !e.isEmpty() && !e.startsWith("#"))
+            .collect(Collectors.toList());
+        }
+    }
+
+    //
+    // Повторяет обертку gradle: окружение javac лежит в поле delegate, а Filer свой и запоминает исходные классы
+    //
+    private static class Environment implements ProcessingEnvironment {
+        protected final ProcessingEnvironment delegate;
+
+        private Environment() {
+            this.delegate = null;
+        }
+
+        private Environment(ProcessingEnvironment delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Map<String, String> getOptions() {
+            return delegate.getOptions();
+        }
+
+        @Override
+        public Messager getMessager() {
+            return delegate.getMessager();
+        }
+
+        @Override
+        public Filer getFiler() {
+            return delegate.getFiler();
+        }
+
+        @Override
+        public Elements getElementUtils() {
+            return delegate.getElementUtils();
+        }
+
+        @Override
+        public Types getTypeUtils() {
+            return delegate.getTypeUtils();
+        }
+
+        @Override
+        public SourceVersion getSourceVersion() {
+            return delegate.getSourceVersion();
+        }
+
+        @Override
+        public Locale getLocale() {
+            return delegate.getLocale();
+        }
+    }
+
+    private static class GradleLikeEnvironment extends Environment {
+        private final Filer filer;
+
+        private GradleLikeEnvironment(ProcessingEnvironment delegate, Map<String, List<String>> origins) {
+            super(delegate);
+
+            this.filer = origins == null ? null : (Filer) Proxy.newProxyInstance(Filer.class.getClassLoader(), new Class<?>[] { Filer.class }, (proxy, method, args) -> {
+                if(method.getName().equals("createSourceFile")) {
+                    origins.put(args[0].toString(), Arrays.stream((Element[]) args[1]).map(e -> ((TypeElement) e).getQualifiedName().toString()).collect(Collectors.toList()));
+                }
+
+                try {
+                    return method.invoke(delegate.getFiler(), args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+
+        @Override
+        public Filer getFiler() {
+            return this.filer;
+        }
+    }
+
+    private static class GradleLikeProcessor implements Processor {
+        private final Processor processor;
+        private final Map<String, List<String>> origins;
+
+        private GradleLikeProcessor(Processor processor, Map<String, List<String>> origins) {
+            this.processor = processor;
+            this.origins = origins;
+        }
+
+        @Override
+        public Set<String> getSupportedOptions() {
+            return processor.getSupportedOptions();
+        }
+
+        @Override
+        public Set<String> getSupportedAnnotationTypes() {
+            return processor.getSupportedAnnotationTypes();
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return processor.getSupportedSourceVersion();
+        }
+
+        @Override
+        public void init(ProcessingEnvironment env) {
+            processor.init(new GradleLikeEnvironment(env, origins));
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+            return processor.process(annotations, round);
+        }
+
+        @Override
+        public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation, ExecutableElement member, String text) {
+            return processor.getCompletions(element, annotation, member, text);
+        }
+    }
+}
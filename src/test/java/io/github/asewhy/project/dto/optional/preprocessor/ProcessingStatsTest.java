@@ -0,0 +1,86 @@
+package io.github.asewhy.project.dto.optional.preprocessor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessingStatsTest {
+    @TempDir
+    static Path dir;
+
+    @Test
+    void reportIsWrittenWhenEnabled() throws IOException {
+        var compilation = Fixtures.compile(
+            dir.resolve("enabled"),
+            List.of(new RequestDTOPreprocessor(), new ResponseDTOPreprocessor()),
+            List.of("-Adto.stats=true"),
+            "fixture/request/AddressDTO.java",
+            "fixture/request/CustomerDTO.java",
+            "fixture/response/ItemDTO.java"
+        );
+
+        var request = Files.readAllLines(dir.resolve("enabled/classes/dto-stats/request.csv"));
+        var response = Files.readAllLines(dir.resolve("enabled/classes/dto-stats/response.csv"));
+
+        assertEquals("class,total_ms,extract_ms,constructor_ms,render_ms,write_ms,skipped_fields,files,bytes", request.get(0));
+        assertEquals(request.get(0), response.get(0));
+        assertEquals(List.of("fixture.request.AddressDTO", "fixture.request.CustomerDTO"), request.stream().skip(1).map(e -> e.split(",")[0]).sorted().collect(Collectors.toList()));
+        assertEquals(2, response.size());
+
+        //
+        // Число файлов и их размер совпадают с тем, что лежит в каталоге сгенерированных исходников
+        //
+        assertRow(compilation, request, "fixture.request.CustomerDTO", "Customer");
+        assertRow(compilation, response, "fixture.response.ItemDTO", "Item");
+
+        var notes = compilation.diagnostics.stream()
+            .filter(e -> e.getKind() == Diagnostic.Kind.NOTE)
+            .map(e -> e.getMessage(Locale.ROOT))
+            .filter(e -> e.startsWith("[dto.stats]"))
+        .collect(Collectors.toList());
+
+        assertEquals(2, notes.size(), notes.toString());
+        assertTrue(notes.stream().anyMatch(e -> e.contains("request: 2 classes") && e.endsWith("Report: dto-stats/request.csv")), notes.toString());
+        assertTrue(notes.stream().anyMatch(e -> e.contains("response: 1 classes") && e.endsWith("Report: dto-stats/response.csv")), notes.toString());
+    }
+
+    @Test
+    void nothingIsWrittenByDefault() {
+        var compilation = Fixtures.compile(dir.resolve("disabled"), "fixture/request/AddressDTO.java", "fixture/response/ItemDTO.java");
+
+        assertFalse(Files.exists(dir.resolve("disabled/classes/dto-stats")));
+        assertTrue(compilation.diagnostics.stream().noneMatch(e -> e.getMessage(Locale.ROOT).startsWith("[dto.stats]")));
+    }
+
+    private static void assertRow(Fixtures.Compilation compilation, List<String> lines, String clazz, String prefix) throws IOException {
+        var row = lines.stream().filter(e -> e.startsWith(clazz + ",")).findFirst().orElseThrow().split(",");
+        var pkg = compilation.generated.resolve(clazz.substring(0, clazz.lastIndexOf('.')).replace('.', '/'));
+        var bytes = 0L;
+        List<Path> files;
+
+        try (var list = Files.list(pkg)) {
+            files = list.filter(e -> e.getFileName().toString().startsWith(prefix)).collect(Collectors.toList());
+        }
+
+        for(var file: files) {
+            bytes += Files.size(file);
+        }
+
+        assertEquals(9, row.length);
+        assertEquals(String.valueOf(files.size()), row[7], clazz);
+        assertEquals(String.valueOf(bytes), row[8], clazz);
+
+        for(var i = 1; i < 6; i++) {
+            assertTrue(Double.parseDouble(row[i]) >= 0, clazz);
+        }
+    }
+}
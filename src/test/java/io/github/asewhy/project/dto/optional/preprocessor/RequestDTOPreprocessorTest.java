@@ -0,0 +1,265 @@
+package io.github.asewhy.project.dto.optional.preprocessor;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import io.github.asewhy.project.dto.optional.preprocessor.fixture.Catalog;
+import io.github.asewhy.project.dto.optional.preprocessor.runtime.PublicBag;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.time.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestDTOPreprocessorTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    static Path dir;
+
+    private static Class<?> request;
+    private static Class<?> target;
+    private static Class<?> address;
+
+    @BeforeAll
+    static void compile() {
+        var compilation = Fixtures.compile(dir, "fixture/request/AddressDTO.java", "fixture/request/CustomerDTO.java");
+
+        request = compilation.load("fixture.request.CustomerRequestDTO");
+        target = compilation.load("fixture.request.CustomerDTO");
+        address = compilation.load("fixture.request.AddressDTO");
+    }
+
+    @Test
+    void presenceIsTrackedPerField() throws Exception {
+        var value = MAPPER.readValue("{\"full_name\":\"Ann\",\"age\":null,\"address\":{\"city\":\"Samara\"}}", request);
+
+        assertEquals(true, call(value, "hasFullNameField"));
+        assertEquals(true, call(value, "hasAgeField"));
+        assertEquals(false, call(value, "hasTagsField"));
+        assertEquals("Ann", call(value, "getFullName"));
+        assertNull(call(value, "getAge"));
+
+        var nested = call(value, "getAddress");
+
+        assertEquals(true, call(nested, "hasCityField"));
+        assertEquals(false, call(nested, "hasZipField"));
+    }
+
+    @Test
+    void applyToCopiesOnlyPresentFields() throws Exception {
+        var value = MAPPER.readValue("{\"full_name\":\"Ann\",\"address\":{\"city\":\"Samara\"}}", request);
+        var entity = MAPPER.readValue("{\"fullName\":\"Old\",\"age\":30,\"tags\":[\"t\"],\"address\":{\"city\":\"Moscow\",\"zip\":\"101000\"}}", target);
+        var nested = call(entity, "getAddress");
+        var result = request.getMethod("applyTo", target).invoke(value, entity);
+
+        assertSame(entity, result);
+        assertEquals(
+            "{\"fullName\":\"Ann\",\"age\":30,\"tags\":[\"t\"],\"address\":{\"city\":\"Samara\",\"zip\":\"101000\"}}",
+            MAPPER.writeValueAsString(entity)
+        );
+
+        //
+        // Вложенный dto переносится в уже существующий объект, не пришедшие вложенные поля сохраняются
+        //
+        assertSame(nested, call(entity, "getAddress"));
+    }
+
+    @Test
+    void applyToCreatesMissingNestedValue() throws Exception {
+        var value = MAPPER.readValue("{\"age\":null,\"address\":{\"zip\":\"443000\"}}", request);
+        var entity = MAPPER.readValue("{\"fullName\":\"Old\",\"age\":30}", target);
+
+        request.getMethod("applyTo", target).invoke(value, entity);
+
+        assertEquals("{\"fullName\":\"Old\",\"age\":null,\"tags\":null,\"address\":{\"city\":null,\"zip\":\"443000\"}}", MAPPER.writeValueAsString(entity));
+        assertSame(address, call(entity, "getAddress").getClass());
+    }
+
+    @Test
+    void deserializerHandlesUnknownAndUnexpectedTokens() throws Exception {
+        assertNotNull(request.getAnnotation(JsonDeserialize.class));
+        assertEquals("CustomerRequestDTODeserializer", request.getAnnotation(JsonDeserialize.class).using().getSimpleName());
+
+        //
+        // Неизвестное поле обрабатывает jackson по своим настройкам, вложенное значение пропускается целиком
+        //
+        assertThrows(UnrecognizedPropertyException.class, () -> MAPPER.readValue("{\"full_name\":\"Ann\",\"extra\":1}", request));
+
+        var lenient = MAPPER.copy().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        var value = lenient.readValue("{\"extra\":{\"a\":[1,{\"b\":2}]},\"full_name\":\"Ann\",\"tags\":[\"t\"]}", request);
+
+        assertEquals("Ann", call(value, "getFullName"));
+        assertEquals(List.of("t"), call(value, "getTags"));
+
+        //
+        // Токен другого типа уходит в jackson, который приводит его по своим правилам или сообщает об ошибке
+        //
+        assertEquals(30L, call(MAPPER.readValue("{\"age\":\"30\"}", request), "getAge"));
+        assertThrows(MismatchedInputException.class, () -> MAPPER.readValue("{\"age\":[1]}", request));
+        assertThrows(MismatchedInputException.class, () -> MAPPER.readValue("[]", request));
+    }
+
+    @Test
+    void dateFormatParsesWithSharedFormatters() throws Exception {
+        var event = Fixtures.compile(dir.resolve("event"), "fixture/request/EventDTO.java");
+        var type = event.load("fixture.request.EventRequestDTO");
+        var source = event.source("fixture.request.EventRequestDTO");
+        var value = MAPPER.readValue(
+            "{\"day\":\"29.02.2024\",\"until\":\"01.03.2024\",\"local\":\"29.02.2024 10:15\",\"at\":\"29.02.2024 10:15\"," +
+            "\"moment\":\"2024-02-29 10:15 +03:00\",\"legacy\":\"01.03.2024\"}",
+            type
+        );
+
+        //
+        // Один форматтер на шаблон, в сеттерах форматтеры не создаются
+        //
+        assertEquals(1, source.split("DateTimeFormatter.ofPattern\\(\"dd.MM.yyyy\"\\)", -1).length - 1, source);
+        assertEquals(1, source.split("new SimpleDateFormat", -1).length - 1, source);
+
+        assertEquals(LocalDate.of(2024, 2, 29), call(value, "getDay"));
+        assertEquals(LocalDate.of(2024, 3, 1), call(value, "getUntil"));
+        assertEquals(LocalDateTime.of(2024, 2, 29, 10, 15), call(value, "getLocal"));
+        assertEquals(Instant.parse("2024-02-29T10:15:00Z"), call(value, "getAt"));
+        assertEquals(OffsetDateTime.of(2024, 2, 29, 10, 15, 0, 0, ZoneOffset.ofHours(3)), call(value, "getMoment"));
+        assertEquals(new SimpleDateFormat("dd.MM.yyyy").parse("01.03.2024"), call(value, "getLegacy"));
+
+        assertThrows(JsonMappingException.class, () -> MAPPER.readValue("{\"day\":\"2024-02-29\"}", type));
+    }
+
+    @Test
+    void fieldPreprocessorsAreLoadedAsServices() throws Exception {
+        var note = Fixtures.compile(dir.resolve("note"), "fixture/request/NoteDTO.java");
+        var type = note.load("fixture.request.NoteRequestDTO");
+
+        //
+        // TrimPreprocessor подключен только через META-INF/services тестов и обрабатывает лишь поля со своей аннотацией
+        //
+        var value = MAPPER.readValue("{\"text\":\" a \",\"raw\":\" b \"}", type);
+
+        assertEquals("a", call(value, "getText"));
+        assertEquals(" b ", call(value, "getRaw"));
+
+        type.getMethod("setText", String.class).invoke(value, " c ");
+
+        assertEquals("c", call(value, "getText"));
+    }
+
+    @Test
+    void enumIsParsedBySwitch() throws Exception {
+        var status = Fixtures.compile(dir.resolve("status"), "fixture/request/StatusDTO.java");
+        var type = status.load("fixture.request.StatusRequestDTO");
+
+        assertTrue(status.source("fixture.request.StatusRequestDTO").contains("case \"EXTRA\": return " + Catalog.Kind.class.getCanonicalName() + ".EXTRA;"));
+        assertEquals(Catalog.Kind.EXTRA, call(MAPPER.readValue("{\"name\":\"a\",\"kind\":\"EXTRA\"}", type), "getKind"));
+
+        var empty = MAPPER.readValue("{\"kind\":null}", type);
+
+        assertEquals(true, call(empty, "hasKindField"));
+        assertNull(call(empty, "getKind"));
+
+        //
+        // Неизвестная константа - ошибка разбора, а не null
+        //
+        assertThrows(JsonMappingException.class, () -> MAPPER.readValue("{\"kind\":\"extra\"}", type));
+    }
+
+    @Test
+    void bagStoresSchemaFieldsInSlots() throws Exception {
+        var value = MAPPER.readValue("{\"full_name\":\"Ann\",\"age\":null}", request);
+        var bag = (PublicBag) call(value, "toBag");
+        var index_of = bag.getClass().getDeclaredMethod("indexOf", String.class);
+
+        index_of.setAccessible(true);
+
+        assertEquals("fixture.request.CustomerRequestDTOBag", bag.getClass().getName());
+        assertEquals(0, index_of.invoke(null, "fullName"));
+        assertEquals(3, index_of.invoke(null, "address"));
+        assertEquals(-1, index_of.invoke(null, "full_name"));
+
+        //
+        // Значения лежат без Optional, пришедший null отличается от не пришедшего поля
+        //
+        assertEquals("Ann", bag.getString("fullName"));
+        assertTrue(bag.has("age"));
+        assertNull(bag.get("age"));
+        assertFalse(bag.has("tags"));
+
+        bag.set("extra", 1).setLong("count", 2L).setLong("age", 3L);
+
+        var fill = new HashMap<String, Object>();
+
+        bag.fill(fill);
+
+        assertEquals(Map.of("fullName", "Ann", "age", 3L, "extra", 1, "count", 2L), fill);
+
+        var frozen = new HashMap<String, Object>();
+
+        bag.snapshot().fill(frozen);
+
+        assertEquals(fill, frozen);
+
+        bag.remove("fullName").remove("extra");
+
+        assertFalse(bag.has("fullName"));
+        assertFalse(bag.has("extra"));
+        assertEquals(2L, bag.getLong("count"));
+    }
+
+    @Test
+    void bitmaskPresenceKeepsPlainFields() throws Exception {
+        var packed = Fixtures.compile(dir.resolve("packed"), "fixture/request/PackedDTO.java");
+        var type = packed.load("fixture.request.PackedRequestDTO");
+        var base = packed.load("fixture.request.PackedDTO");
+        var value = MAPPER.readValue("{\"name\":\"a\",\"count\":null,\"v10\":10,\"tail\":\"z\"}", type);
+
+        assertEquals(String.class, type.getDeclaredField("name").getType());
+        assertEquals(boolean.class, type.getMethod("hasNameField").getReturnType());
+        assertFalse(packed.source("fixture.request.PackedRequestDTO").contains("Optional.ofNullable"));
+
+        assertEquals(true, call(value, "hasNameField"));
+        assertEquals(true, call(value, "hasCountField"));
+        assertEquals(false, call(value, "hasTagsField"));
+        assertEquals(true, call(value, "hasV10Field"));
+        assertEquals(false, call(value, "hasV11Field"));
+        assertEquals(true, call(value, "hasTailField"));
+        assertEquals(false, call(value, "hasV68Field"));
+
+        //
+        // Final поле с константой считается пришедшим сразу после создания
+        //
+        assertEquals(true, call(value, "hasSourceField"));
+        assertEquals("web", call(value, "getSource"));
+        assertEquals(5L, type.getMethod("getCount", Long.class).invoke(value, 5L));
+        assertEquals("a", type.getMethod("getName", String.class).invoke(value, "d"));
+        assertNull(call(value, "getTags"));
+
+        var entity = base.getConstructor().newInstance();
+
+        base.getField("count").set(entity, 3L);
+        base.getField("v11").set(entity, 11);
+        base.getField("v68").set(entity, 68);
+        type.getMethod("applyTo", base).invoke(value, entity);
+
+        assertEquals("a", base.getField("name").get(entity));
+        assertNull(base.getField("count").get(entity));
+        assertEquals(10, base.getField("v10").get(entity));
+        assertEquals(11, base.getField("v11").get(entity));
+        assertEquals(68, base.getField("v68").get(entity));
+        assertEquals("z", base.getField("tail").get(entity));
+    }
+
+    private static Object call(Object target, String name) throws ReflectiveOperationException {
+        return target.getClass().getMethod(name).invoke(target);
+    }
+}
@@ -0,0 +1,389 @@
+package io.github.asewhy.project.dto.optional.preprocessor;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.asewhy.project.dto.optional.preprocessor.fixture.Catalog;
+import io.github.asewhy.project.dto.optional.preprocessor.fixture.Item;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseDTOPreprocessorTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    static Path dir;
+
+    private static Fixtures.Compilation compilation;
+    private static Class<?> dto;
+    private static Class<?> view;
+
+    @BeforeAll
+    static void compile() {
+        compilation = Fixtures.compile(dir, "fixture/response/ItemDTO.java");
+        dto = compilation.load("fixture.response.ItemResponseDTO");
+        view = compilation.load("fixture.response.ItemResponseView");
+    }
+
+    @Test
+    void dtoIsConvertedAndSerialized() throws Exception {
+        var parent = new Item("parent", 5).setCodes(List.of("a", "b"));
+        var child = new Item("child", 7).setParent(parent);
+
+        parent.setRelated(List.of(child));
+
+        assertEquals(
+            "{\"name\":\"parent\",\"price\":5,\"codes\":[\"a\",\"b\"],\"related\":[{\"name\":\"child\",\"price\":7,\"parent\":null}]}",
+            MAPPER.writeValueAsString(toDto(parent))
+        );
+    }
+
+    @Test
+    void dtoRoundTripsThroughBinaryForm() throws Exception {
+        var source = (Externalizable) toDto(new Item("item", 3).setCodes(List.of("x")).setAliases(new String[] { "y", null }));
+        var buffer = new ByteArrayOutputStream();
+
+        try (var out = new ObjectOutputStream(buffer)) {
+            source.writeExternal(out);
+        }
+
+        var target = (Externalizable) dto.getConstructor().newInstance();
+
+        try (var in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+            target.readExternal(in);
+        }
+
+        assertEquals(MAPPER.writeValueAsString(source), MAPPER.writeValueAsString(target));
+        assertTrue(compilation.source("fixture.response.ItemResponseDTO").contains("private static final long serialVersionUID = BINARY_SCHEMA;"));
+    }
+
+    @Test
+    void fieldNamesAreEncodedOnce() throws Exception {
+        var names = Fixtures.compile(dir.resolve("names"), "fixture/response/NamesDTO.java");
+        var type = names.load("fixture.response.NamesResponseDTO");
+        var serializer = names.source("fixture.response.NamesResponseDTOSerializer");
+        var value = type.getConstructor(Item.class).newInstance(new Item("a", 1));
+
+        type.getMethod("setSomeField", String.class).invoke(value, "x");
+        type.getMethod("setSome_field", String.class).invoke(value, "y");
+
+        //
+        // someField и some_field дают одно имя константы в snake case, различаются порядковым номером
+        //
+        assertTrue(serializer.contains("FIELD_1_SOME_FIELD = new SerializedString(\"some-field\")"), serializer);
+        assertTrue(serializer.contains("FIELD_2_SOME_FIELD = new SerializedString(\"some_field\")"), serializer);
+        assertFalse(serializer.contains("writeStringField"));
+        assertFalse(serializer.contains("defaultSerializeField"));
+        assertEquals("{\"name\":\"a\",\"some-field\":\"x\",\"some_field\":\"y\"}", MAPPER.writeValueAsString(value));
+    }
+
+    @Test
+    void typedFieldsAreWrittenDirectly() throws Exception {
+        var types = Fixtures.compile(dir.resolve("types"), "fixture/response/TypesDTO.java");
+        var type = types.load("fixture.response.TypesResponseDTO");
+        var serializer = types.source("fixture.response.TypesResponseDTOSerializer");
+        var value = type.getConstructor().newInstance();
+
+        type.getMethod("setCount", Integer.class).invoke(value, 3);
+        type.getMethod("setRatio", Double.class).invoke(value, 0.5);
+        type.getMethod("setActive", Boolean.class).invoke(value, true);
+        type.getMethod("setSmall", Short.class).invoke(value, (short) 7);
+        type.getMethod("setAmount", BigDecimal.class).invoke(value, new BigDecimal("10.50"));
+        type.getMethod("setBig", BigInteger.class).invoke(value, new BigInteger("12345678901234567890"));
+        type.getMethod("setId", UUID.class).invoke(value, UUID.fromString("123e4567-e89b-12d3-a456-426614174000"));
+        type.getMethod("setLetter", Character.class).invoke(value, 'q');
+        type.getMethod("setDay", LocalDate.class).invoke(value, LocalDate.of(2024, 2, 29));
+        type.getMethod("setLocal", LocalDateTime.class).invoke(value, LocalDateTime.of(2024, 2, 29, 10, 15, 30));
+        type.getMethod("setMoment", OffsetDateTime.class).invoke(value, OffsetDateTime.of(2024, 2, 29, 10, 15, 30, 0, ZoneOffset.ofHours(3)));
+        type.getMethod("setAt", Instant.class).invoke(value, Instant.parse("2024-02-29T07:15:30Z"));
+
+        //
+        // Ни одно поле не уходит в provider, формат дат - ISO 8601
+        //
+        assertFalse(serializer.contains("provider.defaultSerialize"), serializer);
+
+        //
+        // Примитив из геттера исходного объекта пишется без упаковки
+        //
+        assertTrue(compilation.source("fixture.response.ItemResponseViewSerializer").contains("gen.writeNumber(value$price);"));
+        assertEquals(
+            "{\"count\":3,\"ratio\":0.5,\"active\":true,\"small\":7,\"amount\":10.50,\"big\":12345678901234567890," +
+            "\"id\":\"123e4567-e89b-12d3-a456-426614174000\",\"letter\":\"q\",\"day\":\"2024-02-29\",\"local\":\"2024-02-29T10:15:30\"," +
+            "\"moment\":\"2024-02-29T10:15:30+03:00\",\"at\":\"2024-02-29T07:15:30Z\"}",
+            MAPPER.writeValueAsString(value)
+        );
+    }
+
+    @Test
+    void dateFormatWritesWithSharedFormatters() throws Exception {
+        var event = Fixtures.compile(dir.resolve("event"), "fixture/response/EventDTO.java");
+        var type = event.load("fixture.response.EventResponseDTO");
+        var value = type.getConstructor().newInstance();
+        var legacy = new SimpleDateFormat("dd.MM.yyyy").parse("01.03.2024");
+
+        type.getMethod("setDay", LocalDate.class).invoke(value, LocalDate.of(2024, 2, 29));
+        type.getMethod("setUntil", LocalDate.class).invoke(value, LocalDate.of(2024, 3, 1));
+        type.getMethod("setLocal", LocalDateTime.class).invoke(value, LocalDateTime.of(2024, 2, 29, 10, 15));
+        type.getMethod("setAt", Instant.class).invoke(value, Instant.parse("2024-02-29T10:15:00Z"));
+        type.getMethod("setMoment", OffsetDateTime.class).invoke(value, OffsetDateTime.of(2024, 2, 29, 10, 15, 0, 0, ZoneOffset.ofHours(3)));
+        type.getMethod("setLegacy", Date.class).invoke(value, legacy);
+
+        assertEquals(
+            "{\"day\":\"29.02.2024\",\"until\":\"01.03.2024\",\"local\":\"29.02.2024 10:15\",\"at\":\"29.02.2024 10:15\"," +
+            "\"moment\":\"2024-02-29 10:15 +03:00\",\"legacy\":\"01.03.2024\"}",
+            MAPPER.writeValueAsString(value)
+        );
+    }
+
+    @Test
+    void enumIsWrittenFromNameTable() throws Exception {
+        var status = Fixtures.compile(dir.resolve("status"), "fixture/response/StatusDTO.java");
+        var type = status.load("fixture.response.StatusResponseDTO");
+        var serializer = status.source("fixture.response.StatusResponseDTOSerializer");
+        var value = type.getConstructor(Item.class).newInstance(new Item("a", 1));
+
+        type.getMethod("setKind", Catalog.Kind.class).invoke(value, Catalog.Kind.EXTRA);
+
+        assertTrue(serializer.contains("SerializableString[] ENUM_"), serializer);
+        assertFalse(serializer.contains("provider.defaultSerialize"), serializer);
+        assertEquals("{\"name\":\"a\",\"kind\":\"EXTRA\"}", MAPPER.writeValueAsString(value));
+
+        type.getMethod("setKind", Catalog.Kind.class).invoke(value, (Object) null);
+
+        assertEquals("{\"name\":\"a\",\"kind\":null}", MAPPER.writeValueAsString(value));
+    }
+
+    @Test
+    void binaryCodecIsOptIn() throws Exception {
+        var plain = Fixtures.compile(dir.resolve("plain"), "fixture/response/PlainDTO.java");
+        var type = plain.load("fixture.response.PlainResponseDTO");
+
+        assertFalse(Externalizable.class.isAssignableFrom(type));
+        assertFalse(plain.source("fixture.response.PlainResponseDTO").contains("writeTo"));
+        assertTrue(plain.warnings().stream().noneMatch(e -> e.contains("binary")), plain.warnings().toString());
+    }
+
+    @Test
+    void inclusionPolicyOmitsValues() throws Exception {
+        var inclusion = Fixtures.compile(dir.resolve("inclusion"), "fixture/response/OmitNullsDTO.java", "fixture/response/OmitEmptyDTO.java");
+        var blank = new Item(null, 0).setCodes(List.of()).setAliases(new String[0]);
+        var empty = new Item("", 1).setCodes(List.of()).setAliases(new String[0]).setParent(new Item("p", 2).setCodes(List.of("c")));
+
+        assertEquals("{\"price\":0,\"codes\":[],\"aliases\":[]}", write(inclusion, "OmitNulls", blank));
+        assertEquals("{\"name\":\"\",\"price\":1,\"codes\":[],\"aliases\":[],\"parent\":{\"name\":\"p\",\"price\":2,\"codes\":[\"c\"]}}", write(inclusion, "OmitNulls", empty));
+        assertEquals("{\"price\":0}", write(inclusion, "OmitEmpty", blank));
+        assertEquals("{\"price\":1,\"parent\":{\"name\":\"p\",\"price\":2,\"codes\":[\"c\"]}}", write(inclusion, "OmitEmpty", empty));
+    }
+
+    @Test
+    void bitmaskPresenceKeepsPlainFields() throws Exception {
+        var compact = Fixtures.compile(dir.resolve("compact"), "fixture/response/CompactDTO.java");
+        var type = compact.load("fixture.response.CompactResponseDTO");
+        var value = type.getConstructor(Item.class).newInstance(new Item("a", 1).setParent(new Item("p", 2)));
+
+        assertEquals(List.class, type.getDeclaredField("codes").getType());
+        assertEquals(boolean.class, type.getMethod("hasCodesField").getReturnType());
+        assertFalse(compact.source("fixture.response.CompactResponseDTO").contains("Optional"));
+
+        assertEquals(true, type.getMethod("hasKindField").invoke(value));
+        assertEquals(false, type.getMethod("hasCodesField").invoke(value));
+        assertEquals("{\"kind\":\"item\",\"name\":\"a\",\"price\":1,\"parent\":{\"kind\":\"item\",\"name\":\"p\",\"price\":2}}", MAPPER.writeValueAsString(value));
+
+        //
+        // Явно заданный null пишется, очищенное поле пропадает из ответа
+        //
+        type.getMethod("setCodes", List.class).invoke(value, (Object) null);
+        type.getMethod("clearName").invoke(value);
+        type.getMethod("clearParent").invoke(value);
+
+        assertEquals(true, type.getMethod("hasCodesField").invoke(value));
+        assertEquals(false, type.getMethod("hasNameField").invoke(value));
+        assertEquals("{\"kind\":\"item\",\"price\":1,\"codes\":null}", MAPPER.writeValueAsString(value));
+
+        //
+        // writeAll переиспользует экземпляр, маска сбрасывается между элементами
+        //
+        var out = new StringWriter();
+
+        try (var gen = MAPPER.getFactory().createGenerator(out)) {
+            type.getMethod("writeAll", Iterator.class, JsonGenerator.class).invoke(null, List.of(new Item("a", 1).setCodes(List.of("x")), new Item("b", 2)).iterator(), gen);
+        }
+
+        assertEquals("[{\"kind\":\"item\",\"name\":\"a\",\"price\":1,\"codes\":[\"x\"]},{\"kind\":\"item\",\"name\":\"b\",\"price\":2}]", out.toString());
+    }
+
+    @Test
+    void mapAndArrayFieldsAreConverted() throws Exception {
+        var catalog = Fixtures.compile(dir.resolve("catalog"), "fixture/response/EntryDTO.java", "fixture/response/CatalogDTO.java");
+        var type = catalog.load("fixture.response.CatalogResponseDTO");
+        var entry = catalog.load("fixture.response.EntryResponseDTO");
+        var prices = new TreeMap<String, Long>(Comparator.reverseOrder());
+        var by_kind = new EnumMap<Catalog.Kind, Item>(Catalog.Kind.class);
+        var counts = new int[] { 1, 2 };
+        var tags = new String[] { "t" };
+
+        prices.put("a", 1L);
+        prices.put("b", 2L);
+        by_kind.put(Catalog.Kind.EXTRA, new Item("extra", 3));
+
+        var source = new Catalog()
+            .setByName(Map.of("main", new Item("main", 1)))
+            .setPrices(prices)
+            .setByKind(by_kind)
+            .setCounts(counts)
+            .setItems(new Item[] { new Item("first", 1), null })
+            .setTags(tags);
+
+        var value = type.getConstructor(Catalog.class).newInstance(source);
+
+        assertTrue(catalog.warnings().stream().noneMatch(e -> e.contains("CatalogResponseDTO")), catalog.warnings().toString());
+
+        //
+        // Вложенные значения карт и массивов конвертируются в dto, остальное копируется
+        //
+        var by_name = (Map<?, ?>) type.getMethod("getByName").invoke(value);
+
+        assertInstanceOf(entry, by_name.get("main"));
+
+        var copied_prices = (TreeMap<?, ?>) type.getMethod("getPrices").invoke(value);
+
+        assertNotSame(prices, copied_prices);
+        assertEquals(List.of("b", "a"), List.copyOf(copied_prices.keySet()));
+
+        var copied_kind = (Map<?, ?>) type.getMethod("getByKind").invoke(value);
+
+        assertInstanceOf(EnumMap.class, copied_kind);
+        assertInstanceOf(entry, copied_kind.get(Catalog.Kind.EXTRA));
+
+        var copied_counts = (int[]) type.getMethod("getCounts").invoke(value);
+        var items = (Object[]) type.getMethod("getItems").invoke(value);
+        var copied_tags = (String[]) type.getMethod("getTags").invoke(value);
+
+        assertNotSame(counts, copied_counts);
+        assertArrayEquals(counts, copied_counts);
+        assertEquals(entry, items.getClass().getComponentType());
+        assertNull(items[1]);
+        assertNotSame(tags, copied_tags);
+        assertArrayEquals(tags, copied_tags);
+
+        assertEquals(
+            "{\"by_name\":{\"main\":{\"name\":\"main\",\"price\":1}},\"prices\":{\"b\":2,\"a\":1},\"by_kind\":{\"EXTRA\":{\"name\":\"extra\",\"price\":3}}," +
+            "\"counts\":[1,2],\"items\":[{\"name\":\"first\",\"price\":1},null],\"tags\":[\"t\"]}",
+            MAPPER.writeValueAsString(value)
+        );
+    }
+
+    @Test
+    void writeAllAndWriteLinesStreamItems() throws Exception {
+        var items = List.of(new Item("a", 1), new Item("b", 2));
+        var all = new StringWriter();
+        var lines = new StringWriter();
+
+        try (var gen = MAPPER.getFactory().createGenerator(all)) {
+            dto.getMethod("writeAll", Iterator.class, JsonGenerator.class).invoke(null, items.iterator(), gen);
+        }
+
+        try (var gen = MAPPER.getFactory().createGenerator(lines)) {
+            dto.getMethod("writeLines", Iterator.class, JsonGenerator.class).invoke(null, items.iterator(), gen);
+
+            //
+            // writeLines не меняет настройки генератора, следующее корневое значение пишется как обычно
+            //
+            gen.writeNumber(3);
+        }
+
+        var list = new ArrayList<Object>();
+
+        for(var current: items) {
+            list.add(toDto(current));
+        }
+
+        assertEquals(MAPPER.writeValueAsString(list), all.toString());
+        assertEquals(MAPPER.writeValueAsString(list.get(0)) + "\n" + MAPPER.writeValueAsString(list.get(1)) + "\n 3", lines.toString());
+    }
+
+    @Test
+    void writeAllKeepsFinalFields() throws Exception {
+        var kind = Fixtures.compile(dir.resolve("kind"), "fixture/response/KindDTO.java").load("fixture.response.KindResponseDTO");
+        var out = new StringWriter();
+
+        //
+        // Между элементами writeAll сбрасывает экземпляр через clearAll, final поля при этом не трогаются
+        //
+        try (var gen = MAPPER.getFactory().createGenerator(out)) {
+            kind.getMethod("writeAll", Iterator.class, JsonGenerator.class).invoke(null, List.of(new Item("a", 1), new Item("b", 2)).iterator(), gen);
+        }
+
+        assertEquals("[{\"kind\":\"item\",\"name\":\"a\"},{\"kind\":\"item\",\"name\":\"b\"}]", out.toString());
+    }
+
+    @Test
+    void viewMatchesDto() throws Exception {
+        var root = new Item("root", 1);
+        var child = new Item("child", 2).setParent(root).setCodes(List.of("c"));
+
+        root.setRelated(List.of(child));
+
+        assertEquals(MAPPER.writeValueAsString(toDto(root)), MAPPER.writeValueAsString(toView(root)));
+
+        //
+        // Коллекции, массивы и вложенные dto, для которых геттер вернул null, не пишутся ни в dto, ни в представлении
+        //
+        var empty = new Item("empty", 0);
+
+        assertEquals("{\"name\":\"empty\",\"price\":0}", MAPPER.writeValueAsString(toView(empty)));
+        assertEquals(MAPPER.writeValueAsString(toDto(empty)), MAPPER.writeValueAsString(toView(empty)));
+    }
+
+    @Test
+    void viewStopsOnCyclesAndDepth() throws Exception {
+        var self = new Item("self", 1);
+
+        self.setRelated(List.of(self));
+        self.setParent(self);
+
+        assertEquals("{\"name\":\"self\",\"price\":1,\"related\":[null],\"parent\":null}", MAPPER.writeValueAsString(toView(self)));
+
+        Item chain = null;
+
+        for(var i = 0; i < 5; i++) {
+            chain = new Item("n" + i, i).setRelated(chain != null ? List.of(chain) : null);
+        }
+
+        assertEquals(
+            "{\"name\":\"n4\",\"price\":4,\"related\":[{\"name\":\"n3\",\"price\":3,\"related\":[{\"name\":\"n2\",\"price\":2,\"related\":[null]}]}]}",
+            MAPPER.writeValueAsString(toView(chain))
+        );
+    }
+
+    /**
+     * Json dto и представления одного fixture, они должны совпадать
+     */
+    private static String write(Fixtures.Compilation compilation, String prefix, Item item) throws Exception {
+        var dto = compilation.load("fixture.response." + prefix + "ResponseDTO").getConstructor(Item.class).newInstance(item);
+        var view = compilation.load("fixture.response." + prefix + "ResponseView").getConstructor(Item.class).newInstance(item);
+        var result = MAPPER.writeValueAsString(dto);
+
+        assertEquals(result, MAPPER.writeValueAsString(view), prefix);
+
+        return result;
+    }
+
+    private static Object toDto(Item item) throws ReflectiveOperationException {
+        return dto.getConstructor(Item.class).newInstance(item);
+    }
+
+    private static Object toView(Item item) throws ReflectiveOperationException {
+        return view.getConstructor(Item.class).newInstance(item);
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.asewhy.project.dto.optional.preprocessor.fixture;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Исходный класс с картами и массивами для fixtures/fixture/response
+ */
+public class Catalog {
+    public enum Kind {
+        MAIN,
+        EXTRA
+    }
+
+    private Map<String, Item> byName;
+    private TreeMap<String, Long> prices;
+    private EnumMap<Kind, Item> byKind;
+    private int[] counts;
+    private Item[] items;
+    private String[] tags;
+
+    public Map<String, Item> getByName() {
+        return byName;
+    }
+
+    public Catalog setByName(Map<String, Item> byName) {
+        this.byName = byName;
+        return this;
+    }
+
+    public TreeMap<String, Long> getPrices() {
+        return prices;
+    }
+
+    public Catalog setPrices(TreeMap<String, Long> prices) {
+        this.prices = prices;
+        return this;
+    }
+
+    public EnumMap<Kind, Item> getByKind() {
+        return byKind;
+    }
+
+    public Catalog setByKind(EnumMap<Kind, Item> byKind) {
+        this.byKind = byKind;
+        return this;
+    }
+
+    public int[] getCounts() {
+        return counts;
+    }
+
+    public Catalog setCounts(int[] counts) {
+        this.counts = counts;
+        return this;
+    }
+
+    public Item[] getItems() {
+        return items;
+    }
+
+    public Catalog setItems(Item[] items) {
+        this.items = items;
+        return this;
+    }
+
+    public String[] getTags() {
+        return tags;
+    }
+
+    public Catalog setTags(String[] tags) {
+        this.tags = tags;
+        return this;
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.asewhy.project.dto.optional.preprocessor.fixture;
+
+import java.util.List;
+
+/**
+ * Исходный класс для fixtures/fixture/response, компилируется вместе с тестами
+ */
+public class Item {
+    private String name;
+    private long price;
+    private List<String> codes;
+    private String[] aliases;
+    private List<Item> related;
+    private Item parent;
+
+    public Item() {
+
+    }
+
+    public Item(String name, long price) {
+        this.name = name;
+        this.price = price;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public List<String> getCodes() {
+        return codes;
+    }
+
+    public Item setCodes(List<String> codes) {
+        this.codes = codes;
+        return this;
+    }
+
+    public String[] getAliases() {
+        return aliases;
+    }
+
+    public Item setAliases(String[] aliases) {
+        this.aliases = aliases;
+        return this;
+    }
+
+    public List<Item> getRelated() {
+        return related;
+    }
+
+    public Item setRelated(List<Item> related) {
+        this.related = related;
+        return this;
+    }
+
+    public Item getParent() {
+        return parent;
+    }
+
+    public Item setParent(Item parent) {
+        this.parent = parent;
+        return this;
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.asewhy.project.dto.optional.preprocessor.fixture;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Аннотация стороннего обработчика полей, обработчик подключается через META-INF/services тестов
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.SOURCE)
+public @interface Trim {
+
+}
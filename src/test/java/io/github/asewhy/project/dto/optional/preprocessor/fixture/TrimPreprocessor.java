@@ -0,0 +1,46 @@
+package io.github.asewhy.project.dto.optional.preprocessor.fixture;
+
+import io.github.asewhy.project.dto.optional.preprocessor.members.FieldContainer;
+import io.github.asewhy.project.dto.optional.preprocessor.processors.base.BasePreprocessor;
+
+import javax.lang.model.element.Element;
+import java.util.List;
+
+/**
+ * Сторонний обработчик полей, обрезает пробелы у строки из запроса
+ */
+public class TrimPreprocessor extends BasePreprocessor<Trim> {
+    public TrimPreprocessor() {
+        super(Trim.class);
+    }
+
+    @Override
+    protected void processBefore(FieldContainer field, Element target) {
+
+    }
+
+    @Override
+    protected String processResult() {
+        return "value != null ? value.trim() : null";
+    }
+
+    @Override
+    protected List<String> getSetterExceptions() {
+        return List.of();
+    }
+
+    @Override
+    public List<String> getProvidedImports(Element field) {
+        return List.of();
+    }
+
+    @Override
+    public Boolean isTargetAnnotated(Element field) {
+        return field.getAnnotation(this.annotation_type) != null;
+    }
+
+    @Override
+    public String getSetterType() {
+        return "java.lang.String";
+    }
+}
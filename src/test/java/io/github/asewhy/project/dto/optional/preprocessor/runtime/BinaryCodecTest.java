@@ -0,0 +1,75 @@
+package io.github.asewhy.project.dto.optional.preprocessor.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.*;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryCodecTest {
+    @Test
+    void valuesRoundTrip() throws IOException {
+        var string = "строка ".repeat(20_000);
+        var uuid = UUID.randomUUID();
+        var date = new Date(1_580_515_200_000L);
+        var local_date = LocalDate.of(2020, 2, 1);
+        var local_time = LocalTime.of(12, 30, 15, 123_456_789);
+        var local_date_time = LocalDateTime.of(local_date, local_time);
+        var instant = Instant.ofEpochSecond(1_580_515_200L, 42);
+        var offset = OffsetDateTime.of(local_date_time, ZoneOffset.ofHours(4));
+        var zoned = ZonedDateTime.of(local_date_time, ZoneId.of("Europe/Samara"));
+        var buffer = new ByteArrayOutputStream();
+
+        try (var out = new DataOutputStream(buffer)) {
+            BinaryCodec.writeString(out, string);
+            BinaryCodec.writeBigInteger(out, new BigInteger("-123456789012345678901234567890"));
+            BinaryCodec.writeBigDecimal(out, new BigDecimal("12345.6789"));
+            BinaryCodec.writeUUID(out, uuid);
+            BinaryCodec.writeDate(out, date);
+            BinaryCodec.writeLocalDate(out, local_date);
+            BinaryCodec.writeLocalTime(out, local_time);
+            BinaryCodec.writeLocalDateTime(out, local_date_time);
+            BinaryCodec.writeInstant(out, instant);
+            BinaryCodec.writeOffsetDateTime(out, offset);
+            BinaryCodec.writeZonedDateTime(out, zoned);
+        }
+
+        try (var in = new DataInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+            assertEquals(string, BinaryCodec.readString(in));
+            assertEquals(new BigInteger("-123456789012345678901234567890"), BinaryCodec.readBigInteger(in));
+            assertEquals(new BigDecimal("12345.6789"), BinaryCodec.readBigDecimal(in));
+            assertEquals(uuid, BinaryCodec.readUUID(in));
+            assertEquals(date, BinaryCodec.readDate(in));
+            assertEquals(local_date, BinaryCodec.readLocalDate(in));
+            assertEquals(local_time, BinaryCodec.readLocalTime(in));
+            assertEquals(local_date_time, BinaryCodec.readLocalDateTime(in));
+            assertEquals(instant, BinaryCodec.readInstant(in));
+            assertEquals(offset, BinaryCodec.readOffsetDateTime(in));
+            assertEquals(zoned, BinaryCodec.readZonedDateTime(in));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void schemaMismatchIsRejected() throws IOException {
+        var buffer = new ByteArrayOutputStream();
+
+        try (var out = new DataOutputStream(buffer)) {
+            out.writeLong(0x1234L);
+            out.writeLong(0x1234L);
+        }
+
+        try (var in = new DataInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+            BinaryCodec.checkSchema(in, 0x1234L, String.class);
+
+            var error = assertThrows(InvalidClassException.class, () -> BinaryCodec.checkSchema(in, 0x4321L, String.class));
+
+            assertEquals(String.class.getName(), error.classname);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.asewhy.project.dto.optional.preprocessor.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkConversionTest {
+    @Test
+    void parallelKeepsSourceOrder() {
+        var source = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+        var pool = new ForkJoinPool(3);
+
+        try {
+            var result = BulkConversion.convertAll(source, e -> "v" + e, pool, 100);
+
+            assertEquals(source.size(), result.size());
+
+            for(var i = 0; i < source.size(); i++) {
+                assertEquals("v" + i, result.get(i));
+            }
+
+            //
+            // Тип результата не зависит от того, была ли конвертация параллельной
+            //
+            assertInstanceOf(ArrayList.class, result);
+
+            result.add("extra");
+
+            assertEquals(source.size() + 1, result.size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void smallCollectionStaysInCallerThread() {
+        var caller = Thread.currentThread();
+        var result = BulkConversion.convertAll(new ArrayList<>(List.of(1, 2, 3)), e -> Thread.currentThread() == caller, command -> fail("executor used"), 10);
+
+        assertEquals(List.of(true, true, true), result);
+    }
+
+    @Test
+    void nullSourceGivesEmptyList() {
+        assertTrue(BulkConversion.convertAll(null, e -> e).isEmpty());
+        assertTrue(BulkConversion.convertAll(null, e -> e, Runnable::run, 0).isEmpty());
+    }
+
+    @Test
+    void factoryExceptionIsRethrown() {
+        var source = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+        var error = assertThrows(IllegalArgumentException.class, () -> BulkConversion.convertAll(source, e -> {
+            if(e == 500) {
+                throw new IllegalArgumentException("bad " + e);
+            }
+
+            return e;
+        }, ForkJoinPool.commonPool(), 10));
+
+        assertEquals("bad 500", error.getMessage());
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.asewhy.project.dto.optional.preprocessor.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversionContextTest {
+    @Test
+    void backReferenceBecomesNull() {
+        var root = new Node("root");
+        var child = new Node("child");
+
+        root.children.add(child);
+        child.parent = root;
+
+        var dto = new NodeDto(root, new ConversionContext().begin(root, NodeDto.class));
+
+        assertEquals(1, dto.children.size());
+        assertNull(dto.children.get(0).parent);
+    }
+
+    @Test
+    void sharedSourceIsConvertedOnce() {
+        var root = new Node("root");
+        var shared = new Node("shared");
+
+        root.children.add(shared);
+        root.children.add(shared);
+
+        var dto = new NodeDto(root, new ConversionContext().begin(root, NodeDto.class));
+
+        assertSame(dto.children.get(0), dto.children.get(1));
+    }
+
+    @Test
+    void depthIsLimited() {
+        var root = new Node("n0");
+        var current = root;
+
+        for(var i = 1; i < 5; i++) {
+            var next = new Node("n" + i);
+
+            current.children.add(next);
+            current = next;
+        }
+
+        var context = new ConversionContext(2);
+        var dto = new NodeDto(root, context.begin(root, NodeDto.class));
+
+        assertEquals("n1", dto.children.get(0).name);
+        assertEquals("n2", dto.children.get(0).children.get(0).name);
+        assertTrue(dto.children.get(0).children.get(0).children.isEmpty());
+        assertEquals(0, context.getDepth());
+    }
+
+    @Test
+    void truncatedDtoIsNotReused() {
+        var root = new Node("root");
+        var deep = new Node("deep");
+        var shared = new Node("shared");
+
+        //
+        // shared сначала встречается на последнем допустимом уровне, потом прямо под корнем
+        //
+        root.children.add(deep);
+        deep.children.add(shared);
+        root.children.add(shared);
+        shared.children.add(new Node("leaf"));
+
+        var dto = new NodeDto(root, new ConversionContext(2).begin(root, NodeDto.class));
+        var deep_shared = dto.children.get(0).children.get(0);
+        var near_shared = dto.children.get(1);
+
+        assertTrue(deep_shared.children.isEmpty());
+        assertNotSame(deep_shared, near_shared);
+        assertEquals("leaf", near_shared.children.get(0).name);
+    }
+
+    @Test
+    void failedFactoryDoesNotLeaveSourceInProgress() {
+        var context = new ConversionContext();
+        var source = new Node("source");
+
+        assertThrows(IllegalStateException.class, () -> context.convert(source, NodeDto.class, (s, c) -> {
+            throw new IllegalStateException();
+        }));
+
+        var dto = context.convert(source, NodeDto.class, NodeDto::new);
+
+        assertNotNull(dto);
+        assertEquals("source", dto.name);
+        assertEquals(0, context.getDepth());
+    }
+
+    @Test
+    void enterRejectsBackReferenceAndDepth() {
+        var context = new ConversionContext(1);
+        var first = new Object();
+        var second = new Object();
+
+        assertTrue(context.enter(first, Object.class));
+        assertFalse(context.enter(first, Object.class));
+        assertFalse(context.enter(second, Object.class));
+
+        context.exit(first, Object.class);
+
+        assertEquals(0, context.getDepth());
+        assertTrue(context.enter(first, Object.class));
+    }
+
+    private static class Node {
+        private final String name;
+        private final List<Node> children = new ArrayList<>();
+        private Node parent;
+
+        private Node(String name) {
+            this.name = name;
+        }
+    }
+
+    //
+    // Повторяет то, что генерируется для dto ответа: вложенные объекты создаются через context.convert
+    //
+    private static class NodeDto {
+        private final String name;
+        private final List<NodeDto> children = new ArrayList<>();
+        private final NodeDto parent;
+
+        private NodeDto(Node from, ConversionContext context) {
+            this.name = from.name;
+            this.parent = context.convert(from.parent, NodeDto.class, NodeDto::new);
+
+            for(var current: from.children) {
+                var item = context.convert(current, NodeDto.class, NodeDto::new);
+
+                if(item != null) {
+                    this.children.add(item);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.asewhy.project.dto.optional.preprocessor.runtime;
+
+import io.github.asewhy.project.dto.optional.preprocessor.enums.FieldPolicy;
+import io.github.asewhy.project.dto.optional.preprocessor.utils.APUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FieldNamesTest {
+    private static final List<String> NAMES = List.of(
+        "", "a", "A", "id", "ID", "name", "someField", "SomeField", "some_field", "some-field", "SOME_FIELD",
+        "HTTPServer", "httpServer", "getHTTPServerURL", "URLs", "aB", "Ab", "ABc", "aBC", "abcDEFGhi",
+        "field1", "field1Name", "v2Api", "x_", "_x", "-x", "x-", "a__b", "a_-b", "a_B", "a-B", "_", "__a",
+        "someLongFieldNameWithManyParts", "créationDate", "ÉtatCivil"
+    );
+
+    @Test
+    void convertMatchesRegexImplementation() {
+        var policies = new ArrayList<FieldPolicy>(List.of(FieldPolicy.values()));
+
+        policies.add(null);
+
+        for(var policy: policies) {
+            for(var name: NAMES) {
+                assertEquals(regexConvert(name, policy), FieldNames.convert(name, policy), policy + " " + name);
+                assertEquals(regexConvert(name, policy), APUtils.convertToCurrentCase(name, policy), policy + " " + name);
+            }
+        }
+    }
+
+    @Test
+    void unchangedNameIsNotCopied() {
+        var name = "plain";
+
+        assertSame(name, FieldNames.convert(name, FieldPolicy.SnakeCase));
+        assertSame(name, FieldNames.convert(name, FieldPolicy.CamelCase));
+        assertSame(name, FieldNames.convert(name, FieldPolicy.KebabCase));
+    }
+
+    //
+    // Преобразование на регулярных выражениях, которым процессор пользовался до однопроходного FieldNames
+    //
+    private static String regexConvert(String input, FieldPolicy policy) {
+        if(policy == null) {
+            return regexSeparate(input, "_").toLowerCase();
+        }
+
+        return switch (policy) {
+            case CamelCase -> Pattern.compile("(?:_|-)([a-z])").matcher(input).replaceAll(m -> m.group(1).toUpperCase());
+            case SnakeCase -> regexSeparate(input, "_").toLowerCase();
+            case LowerSnakeCase -> regexSeparate(input, "_").toUpperCase(Locale.ROOT);
+            case UpperSnakeCase -> regexSeparate(input, "_").toLowerCase(Locale.ROOT);
+            case KebabCase -> regexSeparate(input, "-").toLowerCase();
+            case LowerKebabCase -> regexSeparate(input, "-").toLowerCase(Locale.ROOT);
+            case UpperKebabCase -> regexSeparate(input, "-").toUpperCase(Locale.ROOT);
+            case None -> input;
+        };
+    }
+
+    private static String regexSeparate(String input, String separator) {
+        return input.replaceAll("([A-Z]+)([A-Z][a-z])", "$1_$2").replaceAll("([a-z])([A-Z])", "$1" + separator + "$2");
+    }
+}
@@ -0,0 +1,166 @@
+package io.github.asewhy.project.dto.optional.preprocessor.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrozenBagTest {
+    @Test
+    void snapshotIsIsolatedFromSource() {
+        var bag = new PublicBag();
+
+        bag.set("name", "before");
+        bag.setLong("count", 1);
+        bag.getLongListView("ids").addLong(1);
+
+        var snapshot = bag.snapshot();
+
+        bag.set("name", "after");
+        bag.setLong("count", 2);
+        bag.getLongListView("ids").addLong(2);
+        bag.set("added", true);
+
+        assertEquals("before", snapshot.getString("name"));
+        assertEquals(1L, snapshot.getLongOrDefault("count", -1));
+        assertEquals(List.of(1L), snapshot.getList("ids"));
+        assertFalse(snapshot.has("added"));
+    }
+
+    @Test
+    void nestedValuesAreFrozen() {
+        var inner = new ArrayList<Object>(List.of("a"));
+        var map = new HashMap<String, Object>(Map.of("list", inner));
+        var nested = new PublicBag();
+        var array = new String[] { "x" };
+        var bag = new PublicBag();
+
+        nested.set("value", "nested");
+        bag.set("map", map);
+        bag.set("bag", nested);
+        bag.set("array", array);
+
+        var snapshot = bag.snapshot();
+
+        inner.add("b");
+        map.put("other", 1);
+        nested.set("value", "changed");
+        array[0] = "y";
+
+        @SuppressWarnings("unchecked")
+        var frozen_map = (Map<String, Object>) snapshot.get("map");
+
+        assertEquals(List.of("a"), frozen_map.get("list"));
+        assertFalse(frozen_map.containsKey("other"));
+        assertInstanceOf(FrozenBag.class, snapshot.get("bag"));
+        assertEquals("nested", ((PublicBag) snapshot.get("bag")).getString("value"));
+        assertArrayEquals(new String[] { "x" }, (String[]) snapshot.get("array"));
+        assertThrows(UnsupportedOperationException.class, () -> ((List<?>) frozen_map.get("list")).clear());
+    }
+
+    @Test
+    void returnedArraysAreCopies() {
+        var bag = new PublicBag();
+
+        bag.set("array", new String[] { "x" });
+        bag.set("matrix", new int[][] { { 1 } });
+        bag.set("list", List.of(new long[] { 1 }));
+
+        var snapshot = bag.snapshot();
+
+        ((String[]) snapshot.get("array"))[0] = "z";
+        ((int[][]) snapshot.get("matrix"))[0][0] = 2;
+
+        var fill = new HashMap<String, Object>();
+
+        snapshot.fill(fill);
+        ((String[]) fill.get("array"))[0] = "z";
+
+        assertArrayEquals(new String[] { "x" }, (String[]) snapshot.get("array"));
+        assertArrayEquals(new int[][] { { 1 } }, (int[][]) snapshot.get("matrix"));
+
+        //
+        // Внутри коллекции массив хранится неизменяемым списком
+        //
+        var nested = (List<?>) snapshot.getList("list").get(0);
+
+        assertEquals(List.of(1L), nested);
+        assertThrows(UnsupportedOperationException.class, () -> nested.clear());
+    }
+
+    @Test
+    void snapshotIsReadOnly() {
+        var snapshot = new PublicBag().set("a", 1).snapshot();
+
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.set("a", 2));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.setLong("b", 2));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.remove("a"));
+        assertSame(snapshot, snapshot.snapshot());
+
+        //
+        // Примитивный список отдается копией, изменения не попадают в снимок
+        //
+        snapshot.getLongListView("a").addLong(5);
+
+        assertEquals(List.of(), snapshot.getList("a"));
+    }
+
+    @Test
+    void concurrentBagCopiesSnapshot() {
+        var snapshot = new PublicBag().set("a", 1).snapshot();
+        var bag = new ConcurrentBag(snapshot);
+
+        bag.set("a", 2);
+        bag.set("b", null);
+
+        assertEquals(1, snapshot.get("a"));
+        assertEquals(2, bag.get("a"));
+        assertTrue(bag.has("b"));
+        assertNull(bag.get("b"));
+    }
+
+    @Test
+    void concurrentBagReadDoesNotWrite() {
+        var bag = new ConcurrentBag();
+        var set = Set.of(1);
+
+        bag.set("set", set);
+        bag.set("name", "text");
+
+        assertEquals(List.of(), bag.getList("set"));
+        assertEquals(List.of(), bag.getList("name"));
+        assertEquals(List.of(), bag.getList("missing"));
+        assertSame(set, bag.get("set"));
+        assertEquals("text", bag.get("name"));
+        assertFalse(bag.has("missing"));
+    }
+
+    @Test
+    void concurrentBagCreatesListOnce() throws InterruptedException {
+        var bag = new ConcurrentBag();
+        var threads = new ArrayList<Thread>();
+
+        for(var i = 0; i < 4; i++) {
+            var thread = new Thread(() -> {
+                for(var j = 0; j < 1000; j++) {
+                    bag.<Integer>getOrCreateList("values").add(j);
+                }
+            });
+
+            threads.add(thread);
+            thread.start();
+        }
+
+        for(var thread: threads) {
+            thread.join();
+        }
+
+        assertEquals(4000, bag.getList("values").size());
+
+        bag.set("name", "text");
+
+        assertThrows(IllegalStateException.class, () -> bag.getOrCreateList("name"));
+        assertEquals("text", bag.get("name"));
+    }
+}
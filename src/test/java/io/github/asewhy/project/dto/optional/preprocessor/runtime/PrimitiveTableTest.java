@@ -0,0 +1,88 @@
+package io.github.asewhy.project.dto.optional.preprocessor.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrimitiveTableTest {
+    @Test
+    void growKeepsAllValues() {
+        var table = new PrimitiveTable();
+
+        for(var i = 0; i < 1000; i++) {
+            table.put("k" + i, i, PrimitiveTable.LONG);
+        }
+
+        for(var i = 0; i < 1000; i++) {
+            var index = table.indexOf("k" + i);
+
+            assertTrue(index >= 0, "k" + i);
+            assertEquals(i, table.getLong(index));
+        }
+
+        assertEquals(-1, table.indexOf("missing"));
+    }
+
+    @Test
+    void putReplacesValueAndKind() {
+        var table = new PrimitiveTable();
+
+        table.put("a", 1, PrimitiveTable.LONG);
+        table.put("a", Double.doubleToRawLongBits(2.5), PrimitiveTable.DOUBLE);
+
+        var fill = new HashMap<String, Object>();
+
+        table.fill(fill);
+
+        assertEquals(1, fill.size());
+        assertEquals(2.5, fill.get("a"));
+        assertEquals(2L, table.getLong(table.indexOf("a")));
+    }
+
+    @Test
+    void removeKeepsProbeChainsReachable() {
+        var table = new PrimitiveTable();
+
+        for(var i = 0; i < 200; i++) {
+            table.put("k" + i, i, PrimitiveTable.INT);
+        }
+
+        for(var i = 0; i < 200; i += 2) {
+            table.remove("k" + i);
+        }
+
+        table.remove("missing");
+
+        for(var i = 0; i < 200; i++) {
+            var index = table.indexOf("k" + i);
+
+            if(i % 2 == 0) {
+                assertEquals(-1, index, "k" + i);
+            } else {
+                assertTrue(index >= 0, "k" + i);
+                assertEquals(i, table.getBoxed(index));
+            }
+        }
+
+        var fill = new HashMap<String, Object>();
+
+        table.fill(fill);
+
+        assertEquals(100, fill.size());
+    }
+
+    @Test
+    void boxesByKind() {
+        var table = new PrimitiveTable();
+
+        table.put("int", 7, PrimitiveTable.INT);
+        table.put("long", 7, PrimitiveTable.LONG);
+        table.put("bool", 1, PrimitiveTable.BOOLEAN);
+
+        assertEquals(7, table.getBoxed(table.indexOf("int")));
+        assertEquals(7L, table.getBoxed(table.indexOf("long")));
+        assertEquals(true, table.getBoxed(table.indexOf("bool")));
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.asewhy.project.dto.optional.preprocessor.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublicBagTest {
+    @Test
+    void primitiveAccessorsDoNotNeedBoxedValues() {
+        var bag = new PublicBag();
+
+        bag.setLong("long", 5L).setInt("int", 7).setDouble("double", 1.5).setBoolean("bool", true);
+
+        assertEquals(5L, bag.getLongOrDefault("long", -1));
+        assertEquals(7, bag.getIntOrDefault("int", -1));
+        assertEquals(1.5, bag.getDoubleOrDefault("double", -1));
+        assertTrue(bag.getBooleanOrDefault("bool", false));
+        assertEquals(-1, bag.getLongOrDefault("missing", -1));
+
+        //
+        // Упакованные геттеры видят те же значения
+        //
+        assertEquals(5L, bag.getLong("long"));
+        assertEquals(7, bag.getInt("int"));
+
+        bag.set("long", "text");
+
+        assertEquals("text", bag.get("long"));
+        assertEquals(-1, bag.getLongOrDefault("long", -1));
+    }
+
+    @Test
+    void listViewDoesNotReplaceStoredCollection() {
+        var bag = new PublicBag();
+        var ids = new ArrayList<>(List.of(1L, 2L));
+
+        bag.set("ids", ids);
+        bag.set("name", "text");
+
+        var view = bag.getLongListView("ids");
+
+        assertEquals(List.of(1L, 2L), view);
+        assertSame(ids, bag.get("ids"));
+
+        view.addLong(3);
+
+        assertEquals(List.of(1L, 2L), ids);
+
+        //
+        // Значение другого типа не теряется
+        //
+        assertTrue(bag.getIntListView("name").isEmpty());
+        assertEquals("text", bag.get("name"));
+    }
+
+    @Test
+    void listViewIsStoredOnlyWhenKeyIsAbsent() {
+        var bag = new PublicBag();
+        var view = bag.getLongListView("ids");
+
+        view.addLong(1);
+        bag.getLongListView("ids").addLong(2);
+
+        assertSame(view, bag.get("ids"));
+        assertEquals(List.of(1L, 2L), bag.getLongList("ids"));
+    }
+
+    @Test
+    void toListReplacesStoredCollectionOnce() {
+        var bag = new PublicBag();
+
+        bag.set("ids", List.of(1, 2));
+
+        var list = bag.toIntList("ids");
+
+        assertSame(list, bag.get("ids"));
+        assertSame(list, bag.getIntListView("ids"));
+        assertSame(list, bag.toIntList("ids"));
+
+        list.addInt(3);
+
+        assertEquals(List.of(1, 2, 3), bag.getIntList("ids"));
+    }
+}
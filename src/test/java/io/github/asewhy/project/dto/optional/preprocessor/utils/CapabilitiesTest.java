@@ -0,0 +1,98 @@
+package io.github.asewhy.project.dto.optional.preprocessor.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CapabilitiesTest {
+    private static final Set<String> JACKSON = Set.of(
+        "com.fasterxml.jackson.core.JsonGenerator",
+        "com.fasterxml.jackson.databind.SerializerProvider",
+        "com.fasterxml.jackson.databind.ser.std.StdSerializer",
+        "com.fasterxml.jackson.databind.annotation.JsonSerialize",
+        "com.fasterxml.jackson.core.JsonParser",
+        "com.fasterxml.jackson.databind.DeserializationContext",
+        "com.fasterxml.jackson.databind.deser.std.StdDeserializer",
+        "com.fasterxml.jackson.databind.annotation.JsonDeserialize"
+    );
+
+    @AfterEach
+    void clear() {
+        Capabilities.clear();
+    }
+
+    @Test
+    void capabilitiesComeFromCompilationClasspath() {
+        var lookups = new ArrayList<String>();
+        var result = Capabilities.of(env(JACKSON, lookups), round());
+
+        assertTrue(result.jackson_serializer);
+        assertTrue(result.jackson_deserializer);
+        assertFalse(result.jackson_java_time);
+
+        //
+        // Classpath процессора тут не учитывается: jackson в тестах есть, но компиляция его не видит
+        //
+        var empty = Capabilities.of(env(Set.of(), lookups), round());
+
+        assertFalse(empty.jackson_serializer);
+        assertFalse(empty.jackson_deserializer);
+    }
+
+    @Test
+    void capabilitiesAreCheckedOncePerRound() {
+        var lookups = new ArrayList<String>();
+        var env = env(JACKSON, lookups);
+        var round = round();
+        var first = Capabilities.of(env, round);
+        var count = lookups.size();
+
+        assertSame(first, Capabilities.of(env, round));
+        assertEquals(count, lookups.size());
+
+        var next = Capabilities.of(env, round());
+
+        assertNotSame(first, next);
+        assertTrue(lookups.size() > count);
+    }
+
+    private static ProcessingEnvironment env(Set<String> types, List<String> lookups) {
+        var type = (TypeElement) Proxy.newProxyInstance(TypeElement.class.getClassLoader(), new Class<?>[] { TypeElement.class }, (proxy, method, args) -> {
+            throw new UnsupportedOperationException(method.getName());
+        });
+        var elements = (Elements) Proxy.newProxyInstance(Elements.class.getClassLoader(), new Class<?>[] { Elements.class }, (proxy, method, args) -> {
+            if(!method.getName().equals("getTypeElement") || args.length != 1) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+
+            lookups.add(args[0].toString());
+
+            return types.contains(args[0].toString()) ? type : null;
+        });
+
+        return (ProcessingEnvironment) Proxy.newProxyInstance(ProcessingEnvironment.class.getClassLoader(), new Class<?>[] { ProcessingEnvironment.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getElementUtils": return elements;
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                default: throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static RoundEnvironment round() {
+        return (RoundEnvironment) Proxy.newProxyInstance(RoundEnvironment.class.getClassLoader(), new Class<?>[] { RoundEnvironment.class }, (proxy, method, args) -> {
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+}
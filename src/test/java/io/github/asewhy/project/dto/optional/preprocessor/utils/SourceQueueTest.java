@@ -0,0 +1,88 @@
+package io.github.asewhy.project.dto.optional.preprocessor.utils;
+
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceQueueTest {
+    @Test
+    void failedRendererDoesNotStopOtherFiles() {
+        var files = new LinkedHashMap<String, StringWriter>();
+        var errors = new ArrayList<String>();
+        var queue = new SourceQueue();
+
+        queue.add(null, "a.First", pw -> pw.print("first"));
+        queue.add(null, "a.Broken", pw -> {
+            throw new IllegalStateException("broken");
+        });
+        queue.add(null, "a.Last", pw -> pw.print("last"));
+
+        queue.flush(filer(files), messager(errors), stats());
+
+        assertEquals(List.of("a.First", "a.Last"), List.copyOf(files.keySet()));
+        assertEquals("first", files.get("a.First").toString());
+        assertEquals("last", files.get("a.Last").toString());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).contains("a.Broken"), errors.get(0));
+
+        //
+        // Очередь очищается, следующий раунд не пишет файлы повторно
+        //
+        queue.flush(filer(files), messager(errors), stats());
+
+        assertEquals(2, files.size());
+    }
+
+    private static Filer filer(Map<String, StringWriter> files) {
+        return (Filer) Proxy.newProxyInstance(Filer.class.getClassLoader(), new Class<?>[] { Filer.class }, (proxy, method, args) -> {
+            if(!method.getName().equals("createSourceFile")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+
+            var name = (String) args[0];
+            var writer = new StringWriter();
+
+            files.put(name, writer);
+
+            return new SimpleJavaFileObject(URI.create("string:///" + name.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+                @Override
+                public Writer openWriter() {
+                    return writer;
+                }
+            };
+        });
+    }
+
+    private static Messager messager(List<String> errors) {
+        return (Messager) Proxy.newProxyInstance(Messager.class.getClassLoader(), new Class<?>[] { Messager.class }, (proxy, method, args) -> {
+            errors.add(String.valueOf(args[1]));
+            return null;
+        });
+    }
+
+    private static ProcessingStats stats() {
+        var env = (ProcessingEnvironment) Proxy.newProxyInstance(ProcessingEnvironment.class.getClassLoader(), new Class<?>[] { ProcessingEnvironment.class }, (proxy, method, args) -> {
+            if(method.getName().equals("getOptions")) {
+                return Map.of();
+            }
+
+            throw new UnsupportedOperationException(method.getName());
+        });
+
+        return new ProcessingStats(env, "test");
+    }
+}
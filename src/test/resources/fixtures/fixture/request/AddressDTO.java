@@ -0,0 +1,25 @@
+package fixture.request;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.RequestDTO;
+
+@RequestDTO
+public class AddressDTO {
+    private String city;
+    private String zip;
+
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    public String getZip() {
+        return zip;
+    }
+
+    public void setZip(String zip) {
+        this.zip = zip;
+    }
+}
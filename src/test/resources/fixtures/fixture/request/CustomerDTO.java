@@ -0,0 +1,45 @@
+package fixture.request;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.RequestDTO;
+
+import java.util.List;
+
+@RequestDTO
+public class CustomerDTO {
+    private String fullName;
+    private Long age;
+    private List<String> tags;
+    private AddressDTO address;
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public void setFullName(String fullName) {
+        this.fullName = fullName;
+    }
+
+    public Long getAge() {
+        return age;
+    }
+
+    public void setAge(Long age) {
+        this.age = age;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+    public AddressDTO getAddress() {
+        return address;
+    }
+
+    public void setAddress(AddressDTO address) {
+        this.address = address;
+    }
+}
@@ -0,0 +1,26 @@
+package fixture.request;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.DateFormat;
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.RequestDTO;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Date;
+
+@RequestDTO
+public class EventDTO {
+    @DateFormat("dd.MM.yyyy")
+    public LocalDate day;
+    @DateFormat("dd.MM.yyyy")
+    public LocalDate until;
+    @DateFormat("dd.MM.yyyy HH:mm")
+    public LocalDateTime local;
+    @DateFormat("dd.MM.yyyy HH:mm")
+    public Instant at;
+    @DateFormat("yyyy-MM-dd HH:mm XXX")
+    public OffsetDateTime moment;
+    @DateFormat("dd.MM.yyyy")
+    public Date legacy;
+}
@@ -0,0 +1,11 @@
+package fixture.request;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.RequestDTO;
+import io.github.asewhy.project.dto.optional.preprocessor.fixture.Trim;
+
+@RequestDTO
+public class NoteDTO {
+    @Trim
+    public String text;
+    public String raw;
+}
@@ -0,0 +1,83 @@
+package fixture.request;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.RequestDTO;
+import io.github.asewhy.project.dto.optional.preprocessor.enums.PresencePolicy;
+
+import java.util.List;
+
+/**
+ * Больше 64 полей, признаки наличия занимают два long
+ */
+@RequestDTO(presence = PresencePolicy.Bitmask)
+public class PackedDTO {
+    public String name;
+    public Long count;
+    public List<String> tags;
+    public final String source = "web";
+    public Integer v4;
+    public Integer v5;
+    public Integer v6;
+    public Integer v7;
+    public Integer v8;
+    public Integer v9;
+    public Integer v10;
+    public Integer v11;
+    public Integer v12;
+    public Integer v13;
+    public Integer v14;
+    public Integer v15;
+    public Integer v16;
+    public Integer v17;
+    public Integer v18;
+    public Integer v19;
+    public Integer v20;
+    public Integer v21;
+    public Integer v22;
+    public Integer v23;
+    public Integer v24;
+    public Integer v25;
+    public Integer v26;
+    public Integer v27;
+    public Integer v28;
+    public Integer v29;
+    public Integer v30;
+    public Integer v31;
+    public Integer v32;
+    public Integer v33;
+    public Integer v34;
+    public Integer v35;
+    public Integer v36;
+    public Integer v37;
+    public Integer v38;
+    public Integer v39;
+    public Integer v40;
+    public Integer v41;
+    public Integer v42;
+    public Integer v43;
+    public Integer v44;
+    public Integer v45;
+    public Integer v46;
+    public Integer v47;
+    public Integer v48;
+    public Integer v49;
+    public Integer v50;
+    public Integer v51;
+    public Integer v52;
+    public Integer v53;
+    public Integer v54;
+    public Integer v55;
+    public Integer v56;
+    public Integer v57;
+    public Integer v58;
+    public Integer v59;
+    public Integer v60;
+    public Integer v61;
+    public Integer v62;
+    public Integer v63;
+    public Integer v64;
+    public Integer v65;
+    public Integer v66;
+    public Integer v67;
+    public Integer v68;
+    public String tail;
+}
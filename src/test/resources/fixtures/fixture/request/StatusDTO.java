@@ -0,0 +1,10 @@
+package fixture.request;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.RequestDTO;
+import io.github.asewhy.project.dto.optional.preprocessor.fixture.Catalog;
+
+@RequestDTO
+public class StatusDTO {
+    public String name;
+    public Catalog.Kind kind;
+}
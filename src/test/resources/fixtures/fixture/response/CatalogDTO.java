@@ -0,0 +1,18 @@
+package fixture.response;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.ResponseDTO;
+import io.github.asewhy.project.dto.optional.preprocessor.fixture.Catalog;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+@ResponseDTO(Catalog.class)
+public class CatalogDTO {
+    protected Map<String, EntryDTO> byName;
+    protected TreeMap<String, Long> prices;
+    protected EnumMap<Catalog.Kind, EntryDTO> byKind;
+    protected int[] counts;
+    protected EntryDTO[] items;
+    protected String[] tags;
+}
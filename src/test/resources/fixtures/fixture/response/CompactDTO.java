@@ -0,0 +1,16 @@
+package fixture.response;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.ResponseDTO;
+import io.github.asewhy.project.dto.optional.preprocessor.enums.PresencePolicy;
+import io.github.asewhy.project.dto.optional.preprocessor.fixture.Item;
+
+import java.util.List;
+
+@ResponseDTO(value = Item.class, presence = PresencePolicy.Bitmask)
+public class CompactDTO {
+    protected final String kind = "item";
+    protected String name;
+    protected Long price;
+    protected List<String> codes;
+    protected CompactDTO parent;
+}
@@ -0,0 +1,10 @@
+package fixture.response;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.ResponseDTO;
+import io.github.asewhy.project.dto.optional.preprocessor.fixture.Item;
+
+@ResponseDTO(Item.class)
+public class EntryDTO {
+    protected String name;
+    protected Long price;
+}
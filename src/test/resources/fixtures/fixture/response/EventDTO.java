@@ -0,0 +1,27 @@
+package fixture.response;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.DateFormat;
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.ResponseDTO;
+import io.github.asewhy.project.dto.optional.preprocessor.fixture.Item;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Date;
+
+@ResponseDTO(Item.class)
+public class EventDTO {
+    @DateFormat("dd.MM.yyyy")
+    protected LocalDate day;
+    @DateFormat("dd.MM.yyyy")
+    protected LocalDate until;
+    @DateFormat("dd.MM.yyyy HH:mm")
+    protected LocalDateTime local;
+    @DateFormat("dd.MM.yyyy HH:mm")
+    protected Instant at;
+    @DateFormat("yyyy-MM-dd HH:mm XXX")
+    protected OffsetDateTime moment;
+    @DateFormat("dd.MM.yyyy")
+    protected Date legacy;
+}
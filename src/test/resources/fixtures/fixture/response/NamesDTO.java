@@ -0,0 +1,12 @@
+package fixture.response;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.ResponseDTO;
+import io.github.asewhy.project.dto.optional.preprocessor.enums.FieldPolicy;
+import io.github.asewhy.project.dto.optional.preprocessor.fixture.Item;
+
+@ResponseDTO(value = Item.class, policy = FieldPolicy.KebabCase)
+public class NamesDTO {
+    protected String name;
+    protected String someField;
+    protected String some_field;
+}
@@ -0,0 +1,16 @@
+package fixture.response;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.ResponseDTO;
+import io.github.asewhy.project.dto.optional.preprocessor.enums.InclusionPolicy;
+import io.github.asewhy.project.dto.optional.preprocessor.fixture.Item;
+
+import java.util.List;
+
+@ResponseDTO(value = Item.class, view = true, inclusion = InclusionPolicy.OmitEmpty)
+public class OmitEmptyDTO {
+    protected String name;
+    protected Long price;
+    protected List<String> codes;
+    protected String[] aliases;
+    protected OmitEmptyDTO parent;
+}
@@ -0,0 +1,13 @@
+package fixture.response;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.ResponseDTO;
+import io.github.asewhy.project.dto.optional.preprocessor.fixture.Item;
+
+import java.util.Map;
+
+@ResponseDTO(Item.class)
+public class PlainDTO {
+    protected String name;
+    protected Object extra;
+    protected Map<String, Object> attributes;
+}
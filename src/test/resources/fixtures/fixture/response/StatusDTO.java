@@ -0,0 +1,11 @@
+package fixture.response;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.ResponseDTO;
+import io.github.asewhy.project.dto.optional.preprocessor.fixture.Catalog;
+import io.github.asewhy.project.dto.optional.preprocessor.fixture.Item;
+
+@ResponseDTO(Item.class)
+public class StatusDTO {
+    protected String name;
+    protected Catalog.Kind kind;
+}
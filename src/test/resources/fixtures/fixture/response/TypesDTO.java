@@ -0,0 +1,28 @@
+package fixture.response;
+
+import io.github.asewhy.project.dto.optional.preprocessor.annotations.ResponseDTO;
+import io.github.asewhy.project.dto.optional.preprocessor.fixture.Item;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@ResponseDTO(Item.class)
+public class TypesDTO {
+    protected Integer count;
+    protected Double ratio;
+    protected Boolean active;
+    protected Short small;
+    protected BigDecimal amount;
+    protected BigInteger big;
+    protected UUID id;
+    protected Character letter;
+    protected LocalDate day;
+    protected LocalDateTime local;
+    protected OffsetDateTime moment;
+    protected Instant at;
+}